@@ -0,0 +1,118 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mebigfatguy.classgraph.ClassNodes;
+import com.mebigfatguy.classgraph.ClassType;
+import com.mebigfatguy.classgraph.EdgeBuffer;
+import com.mebigfatguy.classgraph.RelationshipType;
+
+/**
+ * relationships added from several threads into one set of class nodes, half of them
+ * to a few hot classes, the way most classes relate to String or Object. Relationships
+ * are either added one by one, or through a per thread edge buffer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Dclassgraph.metrics.interval=0" })
+@Threads(4)
+public class EdgeInsertionBenchmark {
+
+    private static final int CLASS_COUNT = 10000;
+    private static final int HOT_CLASSES = 16;
+    private static final int BATCH = 4096;
+    private static final RelationshipType[] TYPES = { RelationshipType.INHERITANCE, RelationshipType.INTERFACE, RelationshipType.CONTAINMENT, RelationshipType.INVOCATION };
+
+    private String[] names;
+    private ClassNodes nodes;
+
+    @Setup(Level.Trial)
+    public void createNames() {
+        names = new String[CLASS_COUNT];
+        for (int i = 0; i < CLASS_COUNT; ++i) {
+            names[i] = "bench.p" + (i / 500) + ".C" + i;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void createNodes() {
+        nodes = new ClassNodes(name -> ClassType.APPLICATION_CLASS);
+    }
+
+    @State(Scope.Thread)
+    public static class Worker {
+
+        private long state;
+        private EdgeBuffer buffer;
+
+        @Setup(Level.Iteration)
+        public void setup(EdgeInsertionBenchmark benchmark) {
+            state = System.identityHashCode(this) | 1L;
+            buffer = new EdgeBuffer(benchmark.nodes, BATCH, benchmark.nodes.getNameTable());
+        }
+
+        @TearDown(Level.Iteration)
+        public void flush() {
+            buffer.flush();
+        }
+
+        int next(int bound) {
+            state ^= state << 13;
+            state ^= state >>> 7;
+            state ^= state << 17;
+            return (int) ((state >>> 33) % bound);
+        }
+    }
+
+    @Benchmark
+    public void direct(Worker worker) {
+        nodes.addRelationship(from(worker), to(worker), TYPES[worker.next(TYPES.length)]);
+    }
+
+    @Benchmark
+    public void batched(Worker worker) {
+        worker.buffer.addRelationship(from(worker), to(worker), TYPES[worker.next(TYPES.length)]);
+    }
+
+    private String from(Worker worker) {
+        return names[worker.next(CLASS_COUNT)];
+    }
+
+    private String to(Worker worker) {
+        return names[(worker.next(2) == 0) ? worker.next(HOT_CLASSES) : worker.next(CLASS_COUNT)];
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mebigfatguy.classgraph.ClassNodes;
+
+/**
+ * the time to parse a synthetic corpus into class nodes, from a cold start of the
+ * builder to the completion of parsing, with the graph cache off
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Dclassgraph.cache=", "-Dclassgraph.metrics.interval=0" })
+public class IngestBenchmark {
+
+    @Param({ "10000", "50000", "200000" })
+    private int classes;
+
+    @Param({ "STRUCTURE", "SIGNATURES", "CODE" })
+    private String level;
+
+    private Set<File> classPath;
+
+    @Setup
+    public void setup() throws IOException {
+        System.setProperty("classgraph.extract", level);
+        classPath = Collections.singleton(SyntheticCorpus.jar(classes, 1L));
+    }
+
+    @Benchmark
+    public ClassNodes ingest() throws InterruptedException {
+        return Ingest.build(classPath);
+    }
+}
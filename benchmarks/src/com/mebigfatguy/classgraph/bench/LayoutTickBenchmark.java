@@ -0,0 +1,96 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mebigfatguy.classgraph.ClassNodes;
+import com.mebigfatguy.classgraph.ClassType;
+import com.mebigfatguy.classgraph.ForceLayout;
+import com.mebigfatguy.classgraph.RelationshipType;
+
+/**
+ * the time of one layout tick, repulsion and attraction, by graph size. Each node is
+ * related to about four others, mostly nearby in creation order, as classes of one
+ * package are. The layout is spread out with a few ticks before measuring. Each
+ * repulsion is measured in its own fork, as the layout reads it once per JVM.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Dclassgraph.metrics.interval=0" })
+public class LayoutTickBenchmark {
+
+    private static final int SPREAD_TICKS = 20;
+
+    @Param({ "1000", "10000", "50000" })
+    private int nodeCount;
+
+    @Param({ "0" })
+    private int threads;
+
+    @Param({ "grid", "barneshut" })
+    private String repulsion;
+
+    private ForceLayout layout;
+
+    @Setup
+    public void setup() {
+        System.setProperty("classgraph.repulsion", repulsion);
+        ClassNodes nodes = new ClassNodes(name -> ClassType.APPLICATION_CLASS);
+        Random random = new Random(nodeCount);
+        for (int i = 1; i < nodeCount; ++i) {
+            for (int e = 0; e < 2; ++e) {
+                int j = (random.nextInt(4) == 0) ? random.nextInt(i) : Math.max(0, i - 1 - random.nextInt(50));
+                nodes.addRelationship("C" + i, "C" + j, (e == 0) ? RelationshipType.INHERITANCE : RelationshipType.CONTAINMENT);
+            }
+        }
+
+        int layoutThreads = (threads > 0) ? threads : Runtime.getRuntime().availableProcessors();
+        layout = new ForceLayout(nodes, layoutThreads, 0L);
+        for (int t = 0; t < SPREAD_TICKS; ++t) {
+            layout.tick();
+        }
+    }
+
+    @TearDown
+    public void terminate() {
+        layout.terminate();
+    }
+
+    @Benchmark
+    public float tick() {
+        return layout.tick();
+    }
+}
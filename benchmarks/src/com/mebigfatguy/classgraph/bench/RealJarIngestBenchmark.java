@@ -0,0 +1,81 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph.bench;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.objectweb.asm.ClassReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+
+import com.mebigfatguy.classgraph.ClassNodes;
+
+/**
+ * the time to parse real jars into class nodes. The jars are given, separated by the
+ * path separator, with -Dclassgraph.bench.jars, and default to the jars of ASM,
+ * SLF4J and Logback that the benchmarks run with.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = { "-Dclassgraph.cache=", "-Dclassgraph.metrics.interval=0" })
+public class RealJarIngestBenchmark {
+
+    @Param({ "STRUCTURE", "SIGNATURES", "CODE" })
+    private String level;
+
+    private Set<File> classPath;
+
+    @Setup
+    public void setup() throws URISyntaxException {
+        System.setProperty("classgraph.extract", level);
+
+        classPath = new LinkedHashSet<>();
+        String jars = System.getProperty("classgraph.bench.jars");
+        if (jars != null) {
+            for (String jar : jars.split(File.pathSeparator)) {
+                classPath.add(new File(jar));
+            }
+        } else {
+            for (Class<?> cls : new Class<?>[] { ClassReader.class, LoggerFactory.class, ch.qos.logback.classic.Logger.class }) {
+                classPath.add(new File(cls.getProtectionDomain().getCodeSource().getLocation().toURI()));
+            }
+        }
+    }
+
+    @Benchmark
+    public ClassNodes ingest() throws InterruptedException {
+        return Ingest.build(classPath);
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph.bench;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * generates jars of synthetic classes that look enough like real code to exercise
+ * every extraction level: classes extend earlier classes, implement interfaces, hold
+ * fields of other classes, and have methods that take, create, cast and call other
+ * classes. A corpus is generated once per class count and seed, and reused from the
+ * temp directory after that.
+ */
+public final class SyntheticCorpus {
+
+    private static final int CLASSES_PER_PACKAGE = 500;
+    private static final int INTERFACE_RATIO = 20;
+
+    private SyntheticCorpus() {
+    }
+
+    /**
+     * @param classCount
+     * @param seed
+     * @return a jar of classCount generated classes
+     * @throws IOException
+     */
+    public static File jar(int classCount, long seed) throws IOException {
+        File dir = new File(System.getProperty("java.io.tmpdir"), "classgraph-bench");
+        File jar = new File(dir, "corpus-" + classCount + "-" + seed + ".jar");
+        if (jar.isFile()) {
+            return jar;
+        }
+
+        Files.createDirectories(dir.toPath());
+        File tmpJar = new File(dir, jar.getName() + ".tmp");
+        try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(tmpJar.toPath()));
+             JarOutputStream jos = new JarOutputStream(os)) {
+            Random random = new Random(seed);
+            for (int i = 0; i < classCount; ++i) {
+                jos.putNextEntry(new JarEntry(className(i) + ".class"));
+                jos.write(generate(i, random));
+                jos.closeEntry();
+            }
+        }
+
+        Files.move(tmpJar.toPath(), jar.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return jar;
+    }
+
+    private static String className(int i) {
+        return "bench/p" + (i / CLASSES_PER_PACKAGE) + "/C" + i;
+    }
+
+    private static boolean isInterface(int i) {
+        return (i % INTERFACE_RATIO) == 1;
+    }
+
+    private static byte[] generate(int i, Random random) {
+        String name = className(i);
+        ClassWriter cw = new ClassWriter(0);
+
+        if (isInterface(i)) {
+            cw.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT, name, null, "java/lang/Object", null);
+            cw.visitEnd();
+            return cw.toByteArray();
+        }
+
+        String superName = "java/lang/Object";
+        if ((i > 0) && (random.nextInt(3) != 0)) {
+            int superIndex = random.nextInt(i);
+            if (!isInterface(superIndex)) {
+                superName = className(superIndex);
+            }
+        }
+
+        int interfaceCount = (i > INTERFACE_RATIO) ? random.nextInt(3) : 0;
+        String[] interfaces = new String[interfaceCount];
+        for (int k = 0; k < interfaceCount; ++k) {
+            interfaces[k] = className(((random.nextInt(i / INTERFACE_RATIO)) * INTERFACE_RATIO) + 1);
+        }
+
+        cw.visit(Opcodes.V17, Opcodes.ACC_PUBLIC, name, null, superName, interfaces);
+
+        int fieldCount = random.nextInt(5);
+        for (int f = 0; f < fieldCount; ++f) {
+            cw.visitField(Opcodes.ACC_PRIVATE, "f" + f, "L" + pick(i, random) + ";", null, null).visitEnd();
+        }
+
+        int methodCount = 1 + random.nextInt(3);
+        for (int m = 0; m < methodCount; ++m) {
+            String argType = pick(i, random);
+            String newType = pick(i, random);
+            String castType = pick(i, random);
+            String callType = pick(i, random);
+
+            MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "m" + m, "(L" + argType + ";)Ljava/lang/Object;", null, null);
+            mv.visitCode();
+            mv.visitTypeInsn(Opcodes.NEW, newType);
+            mv.visitInsn(Opcodes.DUP);
+            mv.visitMethodInsn(Opcodes.INVOKESPECIAL, newType, "<init>", "()V", false);
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, callType, "toString", "()Ljava/lang/String;", false);
+            mv.visitTypeInsn(Opcodes.CHECKCAST, castType);
+            mv.visitInsn(Opcodes.ARETURN);
+            mv.visitMaxs(2, 2);
+            mv.visitEnd();
+        }
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /**
+     * picks a related class, mostly from the same package, now and then from a popular
+     * class near the start of the corpus or from the JDK
+     */
+    private static String pick(int i, Random random) {
+        int roll = random.nextInt(10);
+        if ((roll == 0) || (i == 0)) {
+            return "java/lang/String";
+        }
+        if (roll == 1) {
+            return className(random.nextInt(Math.min(i, 100)));
+        }
+
+        int packageStart = (i / CLASSES_PER_PACKAGE) * CLASSES_PER_PACKAGE;
+        return className(packageStart + random.nextInt(Math.max(1, i - packageStart)));
+    }
+}
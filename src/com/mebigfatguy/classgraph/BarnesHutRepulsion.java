@@ -0,0 +1,389 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import java.util.Arrays;
+
+/**
+ * computes node repulsion using a Barnes-Hut octree. Cells that are small compared
+ * to their distance from a body (size / distance &lt; theta) are treated as one body
+ * sitting at their center of mass, and cells that lie entirely beyond the long repel
+ * distance are skipped, as repulsion doesn't reach that far. A theta of 0 never
+ * approximates, and so gives the exact pairwise result.
+ * <p>
+ * An approximated cell pushes with the full repulsion of unrelated bodies, even when it
+ * holds bodies related to the one it pushes, which exact pairs only push off when very
+ * close. This is deliberate: telling would mean checking every body of the cell, which
+ * is what the approximation avoids. Such cells lie at least size / theta away, where
+ * the attraction between related bodies outweighs the extra push, so the error only
+ * delays related bodies that start far apart from pulling together.
+ */
+public class BarnesHutRepulsion {
+
+    public static final float DEFAULT_THETA = 0.5f;
+
+    private static final int MAX_DEPTH = 16;
+    private static final int STACK_SIZE = (MAX_DEPTH * 7) + 8;
+    private static final int INITIAL_CELLS = 64;
+
+    /**
+     * decides whether two bodies share a relationship, in which case only short range
+     * repulsion applies between them
+     */
+    public interface Relations {
+        boolean isRelated(int body1, int body2);
+    }
+
+    private float thetaSquared;
+    private float shortRepelDistance;
+    private float longRepelDistanceSquared;
+
+    private float[] bodyX;
+    private float[] bodyY;
+    private float[] bodyZ;
+    private int[] nextBody = new int[0];
+
+    private int cellCount;
+    private float[] cellMinX = new float[INITIAL_CELLS];
+    private float[] cellMinY = new float[INITIAL_CELLS];
+    private float[] cellMinZ = new float[INITIAL_CELLS];
+    private float[] cellSize = new float[INITIAL_CELLS];
+    private int[] cellDepth = new int[INITIAL_CELLS];
+    private int[] cellChild = new int[INITIAL_CELLS];
+    private int[] cellFirstBody = new int[INITIAL_CELLS];
+    private float[] cellMass = new float[INITIAL_CELLS];
+    private float[] cellCenterX = new float[INITIAL_CELLS];
+    private float[] cellCenterY = new float[INITIAL_CELLS];
+    private float[] cellCenterZ = new float[INITIAL_CELLS];
+
+    public BarnesHutRepulsion(float theta, float shortRepelDistance, float longRepelDistance) {
+        thetaSquared = theta * theta;
+        this.shortRepelDistance = shortRepelDistance;
+        longRepelDistanceSquared = longRepelDistance * longRepelDistance;
+    }
+
+    /**
+     * builds the octree over the first count bodies of the position arrays. The arrays
+     * are referenced, not copied, and must not change until the displacements are
+     * accumulated.
+     *
+     * @param count
+     * @param x
+     * @param y
+     * @param z
+     */
+    public void build(int count, float[] x, float[] y, float[] z) {
+        bodyX = x;
+        bodyY = y;
+        bodyZ = z;
+        if (nextBody.length < count) {
+            nextBody = new int[count];
+        }
+
+        cellCount = 0;
+        if (count == 0) {
+            return;
+        }
+
+        float minX = x[0], minY = y[0], minZ = z[0];
+        float maxX = minX, maxY = minY, maxZ = minZ;
+        for (int i = 1; i < count; ++i) {
+            minX = Math.min(minX, x[i]);
+            minY = Math.min(minY, y[i]);
+            minZ = Math.min(minZ, z[i]);
+            maxX = Math.max(maxX, x[i]);
+            maxY = Math.max(maxY, y[i]);
+            maxZ = Math.max(maxZ, z[i]);
+        }
+
+        float size = Math.max(Math.max(maxX - minX, maxY - minY), Math.max(maxZ - minZ, 1.0f));
+        // pad slightly so bodies on the max faces still fall inside the root cell
+        size *= 1.0001f;
+
+        int root = newCell(minX, minY, minZ, size, 0);
+        for (int i = 0; i < count; ++i) {
+            insert(root, i);
+        }
+
+        summarize();
+    }
+
+    /**
+     * adds the repulsion that all other bodies exert on the given body into the
+     * displacement arrays. The traversal stack is supplied by the caller so that
+     * several threads can query one tree.
+     *
+     * @param body
+     * @param relations
+     * @param dx
+     * @param dy
+     * @param dz
+     * @param traversalStack an array of at least {@link #stackSize()} entries
+     * @param random the source of directions for bodies that sit on top of each other
+     */
+    public void accumulate(int body, Relations relations, float[] dx, float[] dy, float[] dz, int[] traversalStack, LayoutRandom random) {
+        if (cellCount == 0) {
+            return;
+        }
+
+        float px = bodyX[body];
+        float py = bodyY[body];
+        float pz = bodyZ[body];
+
+        float fx = 0.0f, fy = 0.0f, fz = 0.0f;
+
+        int top = 0;
+        traversalStack[top++] = 0;
+        while (top > 0) {
+            int cell = traversalStack[--top];
+            if (cellMass[cell] == 0.0f) {
+                continue;
+            }
+
+            float size = cellSize[cell];
+            float nearX = clampDistance(px, cellMinX[cell], size);
+            float nearY = clampDistance(py, cellMinY[cell], size);
+            float nearZ = clampDistance(pz, cellMinZ[cell], size);
+            float nearSq = (nearX * nearX) + (nearY * nearY) + (nearZ * nearZ);
+            if (nearSq >= longRepelDistanceSquared) {
+                continue;
+            }
+
+            int child = cellChild[cell];
+            if (child < 0) {
+                for (int other = cellFirstBody[cell]; other >= 0; other = nextBody[other]) {
+                    if (other == body) {
+                        continue;
+                    }
+
+                    float ox = px - bodyX[other];
+                    float oy = py - bodyY[other];
+                    float oz = pz - bodyZ[other];
+                    float distSq = (ox * ox) + (oy * oy) + (oz * oz);
+
+                    float speed = repelSpeed(relations.isRelated(body, other), distSq, shortRepelDistance, longRepelDistanceSquared);
+
+                    if (speed > 0.0f) {
+                        float dist = (float) Math.sqrt(distSq);
+                        if (dist == 0.0f) {
+                            ox = random.nextFloat(-5.0f, 5.0f);
+                            oy = random.nextFloat(-5.0f, 5.0f);
+                            oz = random.nextFloat(-5.0f, 5.0f);
+                            dist = VectorMath.length(ox, oy, oz);
+                            if (dist == 0.0f) {
+                                continue;
+                            }
+                        }
+                        float scale = speed / dist;
+                        fx += ox * scale;
+                        fy += oy * scale;
+                        fz += oz * scale;
+                    }
+                }
+            } else {
+                float cx = px - cellCenterX[cell];
+                float cy = py - cellCenterY[cell];
+                float cz = pz - cellCenterZ[cell];
+                float distSq = (cx * cx) + (cy * cy) + (cz * cz);
+
+                if ((nearSq > 0.0f) && ((size * size) < (thetaSquared * distSq))) {
+                    // as if every body of the cell were unrelated, see the class comment
+                    if ((distSq < longRepelDistanceSquared) && (distSq > 0.0f)) {
+                        float dist = (float) Math.sqrt(distSq);
+                        float scale = (cellMass[cell] * (float) (Math.sqrt(longRepelDistanceSquared - distSq) / 3)) / dist;
+                        fx += cx * scale;
+                        fy += cy * scale;
+                        fz += cz * scale;
+                    }
+                } else {
+                    for (int c = 0; c < 8; ++c) {
+                        traversalStack[top++] = child + c;
+                    }
+                }
+            }
+        }
+
+        dx[body] += fx;
+        dy[body] += fy;
+        dz[body] += fz;
+    }
+
+    /**
+     * the repulsion between two single bodies, which is shared with
+     * {@link GridRepulsion}. Related bodies only push each other off when very close.
+     *
+     * @param related
+     * @param distSq
+     * @param shortRepelDistance
+     * @param longRepelDistanceSquared
+     * @return how far the bodies push each other apart
+     */
+    static float repelSpeed(boolean related, float distSq, float shortRepelDistance, float longRepelDistanceSquared) {
+        if (related) {
+            return (distSq < (shortRepelDistance * shortRepelDistance)) ? shortRepelDistance / 3 : 0.0f;
+        }
+        return (distSq < longRepelDistanceSquared) ? (float) (Math.sqrt(longRepelDistanceSquared - distSq) / 3) : 0.0f;
+    }
+
+    /**
+     * @return the size a traversal stack must have to be passed to accumulate
+     */
+    public static int stackSize() {
+        return STACK_SIZE;
+    }
+
+    private static float clampDistance(float p, float min, float size) {
+        if (p < min) {
+            return min - p;
+        }
+        float max = min + size;
+        if (p > max) {
+            return p - max;
+        }
+        return 0.0f;
+    }
+
+    private void insert(int root, int body) {
+        nextBody[body] = -1;
+        int cell = root;
+
+        while (true) {
+            int child = cellChild[cell];
+            if (child >= 0) {
+                cell = child + octant(cell, body);
+                continue;
+            }
+
+            int first = cellFirstBody[cell];
+            if ((first < 0) || (cellDepth[cell] >= MAX_DEPTH)) {
+                nextBody[body] = first;
+                cellFirstBody[cell] = body;
+                return;
+            }
+
+            subdivide(cell);
+        }
+    }
+
+    private void subdivide(int cell) {
+        float half = cellSize[cell] / 2.0f;
+        float minX = cellMinX[cell];
+        float minY = cellMinY[cell];
+        float minZ = cellMinZ[cell];
+        int depth = cellDepth[cell] + 1;
+
+        int child = -1;
+        for (int c = 0; c < 8; ++c) {
+            int newCell = newCell(minX + (((c & 1) != 0) ? half : 0.0f), minY + (((c & 2) != 0) ? half : 0.0f), minZ + (((c & 4) != 0) ? half : 0.0f), half,
+                    depth);
+            if (c == 0) {
+                child = newCell;
+            }
+        }
+
+        int body = cellFirstBody[cell];
+        cellFirstBody[cell] = -1;
+        cellChild[cell] = child;
+
+        while (body >= 0) {
+            int next = nextBody[body];
+            int target = child + octant(cell, body);
+            nextBody[body] = cellFirstBody[target];
+            cellFirstBody[target] = body;
+            body = next;
+        }
+    }
+
+    private int octant(int cell, int body) {
+        float half = cellSize[cell] / 2.0f;
+        int octant = 0;
+        if (bodyX[body] >= (cellMinX[cell] + half)) {
+            octant |= 1;
+        }
+        if (bodyY[body] >= (cellMinY[cell] + half)) {
+            octant |= 2;
+        }
+        if (bodyZ[body] >= (cellMinZ[cell] + half)) {
+            octant |= 4;
+        }
+        return octant;
+    }
+
+    /**
+     * children are always created after their parents, so walking the cells backwards
+     * visits every child before the cell that holds it
+     */
+    private void summarize() {
+        for (int cell = cellCount - 1; cell >= 0; --cell) {
+            float mass = 0.0f, sx = 0.0f, sy = 0.0f, sz = 0.0f;
+
+            int child = cellChild[cell];
+            if (child < 0) {
+                for (int body = cellFirstBody[cell]; body >= 0; body = nextBody[body]) {
+                    mass += 1.0f;
+                    sx += bodyX[body];
+                    sy += bodyY[body];
+                    sz += bodyZ[body];
+                }
+            } else {
+                for (int c = child; c < (child + 8); ++c) {
+                    float m = cellMass[c];
+                    mass += m;
+                    sx += cellCenterX[c] * m;
+                    sy += cellCenterY[c] * m;
+                    sz += cellCenterZ[c] * m;
+                }
+            }
+
+            cellMass[cell] = mass;
+            if (mass > 0.0f) {
+                cellCenterX[cell] = sx / mass;
+                cellCenterY[cell] = sy / mass;
+                cellCenterZ[cell] = sz / mass;
+            }
+        }
+    }
+
+    private int newCell(float minX, float minY, float minZ, float size, int depth) {
+        if (cellCount == cellSize.length) {
+            int newLength = cellCount * 2;
+            cellMinX = Arrays.copyOf(cellMinX, newLength);
+            cellMinY = Arrays.copyOf(cellMinY, newLength);
+            cellMinZ = Arrays.copyOf(cellMinZ, newLength);
+            cellSize = Arrays.copyOf(cellSize, newLength);
+            cellDepth = Arrays.copyOf(cellDepth, newLength);
+            cellChild = Arrays.copyOf(cellChild, newLength);
+            cellFirstBody = Arrays.copyOf(cellFirstBody, newLength);
+            cellMass = Arrays.copyOf(cellMass, newLength);
+            cellCenterX = Arrays.copyOf(cellCenterX, newLength);
+            cellCenterY = Arrays.copyOf(cellCenterY, newLength);
+            cellCenterZ = Arrays.copyOf(cellCenterZ, newLength);
+        }
+
+        int cell = cellCount++;
+        cellMinX[cell] = minX;
+        cellMinY[cell] = minY;
+        cellMinZ[cell] = minZ;
+        cellSize[cell] = size;
+        cellDepth[cell] = depth;
+        cellChild[cell] = -1;
+        cellFirstBody[cell] = -1;
+        cellMass[cell] = 0.0f;
+        return cell;
+    }
+}
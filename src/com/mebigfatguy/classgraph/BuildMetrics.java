@@ -0,0 +1,161 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * counters of a graph build, updated by the reader and parser threads without
+ * contention. The latency of a root is the time from when its reader starts until its
+ * last class is parsed, and is kept in a histogram of power of two millisecond buckets.
+ */
+public class BuildMetrics implements BuildMetricsMXBean {
+
+    private static final int LATENCY_BUCKETS = 32;
+
+    private Collection<?> queue;
+    private LongAdder classesParsed = new LongAdder();
+    private LongAdder bytesRead = new LongAdder();
+    private LongAdder parseErrors = new LongAdder();
+    private LongAdder rootsCompleted = new LongAdder();
+    private LongAdder rootsFromCache = new LongAdder();
+    private LongAdder[] rootLatencies = new LongAdder[LATENCY_BUCKETS];
+    private volatile long startTime;
+    private volatile long endTime;
+
+    public BuildMetrics(Collection<?> classQueue) {
+        queue = classQueue;
+        for (int i = 0; i < LATENCY_BUCKETS; ++i) {
+            rootLatencies[i] = new LongAdder();
+        }
+    }
+
+    void started() {
+        startTime = System.nanoTime();
+    }
+
+    void completed() {
+        endTime = System.nanoTime();
+    }
+
+    void classParsed(int bytes) {
+        classesParsed.increment();
+        bytesRead.add(bytes);
+    }
+
+    void parseFailed() {
+        parseErrors.increment();
+    }
+
+    void rootCompleted(long nanos, boolean fromCache) {
+        rootsCompleted.increment();
+        if (fromCache) {
+            rootsFromCache.increment();
+        }
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        int bucket = Math.min(LATENCY_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(millis));
+        rootLatencies[bucket].increment();
+    }
+
+    @Override
+    public long getClassesParsed() {
+        return classesParsed.sum();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    @Override
+    public long getParseErrors() {
+        return parseErrors.sum();
+    }
+
+    @Override
+    public long getRootsCompleted() {
+        return rootsCompleted.sum();
+    }
+
+    @Override
+    public long getRootsFromCache() {
+        return rootsFromCache.sum();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    @Override
+    public long getElapsedMillis() {
+        long start = startTime;
+        if (start == 0) {
+            return 0;
+        }
+
+        long end = isCompleted() ? endTime : System.nanoTime();
+        return TimeUnit.NANOSECONDS.toMillis(end - start);
+    }
+
+    @Override
+    public double getClassesPerSecond() {
+        long millis = getElapsedMillis();
+        return (millis == 0) ? 0.0 : (getClassesParsed() * 1000.0) / millis;
+    }
+
+    @Override
+    public boolean isCompleted() {
+        return endTime != 0;
+    }
+
+    @Override
+    public long[] getRootLatencyHistogram() {
+        long[] histogram = new long[LATENCY_BUCKETS];
+        for (int i = 0; i < LATENCY_BUCKETS; ++i) {
+            histogram[i] = rootLatencies[i].sum();
+        }
+        return histogram;
+    }
+
+    /**
+     * @return a one line summary for the log, with the non empty latency buckets given
+     *         as upper bound in ms and count
+     */
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(getClassesParsed()).append(" classes (").append(getBytesRead() / 1024).append(" KB) in ").append(getElapsedMillis()).append(" ms, ");
+        sb.append(String.format("%.0f", Double.valueOf(getClassesPerSecond()))).append(" classes/s, ");
+        sb.append(getParseErrors()).append(" errors, ");
+        sb.append(getRootsCompleted()).append(" roots (").append(getRootsFromCache()).append(" cached), ");
+        sb.append("queue ").append(getQueueDepth()).append(", root latency {");
+
+        long[] histogram = getRootLatencyHistogram();
+        String separator = "";
+        for (int i = 0; i < LATENCY_BUCKETS; ++i) {
+            if (histogram[i] > 0) {
+                sb.append(separator).append("<").append(1L << i).append("ms: ").append(histogram[i]);
+                separator = ", ";
+            }
+        }
+        return sb.append("}").toString();
+    }
+}
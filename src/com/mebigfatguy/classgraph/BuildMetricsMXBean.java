@@ -0,0 +1,48 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+/**
+ * the progress of a {@link GraphBuilder}, as seen through JMX
+ */
+public interface BuildMetricsMXBean {
+
+    long getClassesParsed();
+
+    long getBytesRead();
+
+    long getParseErrors();
+
+    long getRootsCompleted();
+
+    long getRootsFromCache();
+
+    int getQueueDepth();
+
+    long getElapsedMillis();
+
+    double getClassesPerSecond();
+
+    boolean isCompleted();
+
+    /**
+     * @return the number of roots whose read and parse took less than 1ms in slot 0, and
+     *         between 2^(i-1) and 2^i ms in slot i
+     */
+    long[] getRootLatencyHistogram();
+}
@@ -0,0 +1,227 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * keeps the class nodes in step with class directories as they are recompiled. The
+ * relationships each class file contributed are remembered, so when a file changes or
+ * goes away, just its old relationships are taken back out of the nodes before the new
+ * version is parsed. Nodes are never removed, so the layout keeps its positions.
+ * <p>
+ * Directories are registered before the initial build, but events are only handled
+ * once {@link #start()} is called after the build, so nothing is parsed twice.
+ */
+public class ClassDirectoryWatcher implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClassDirectoryWatcher.class);
+
+    private ClassNodes nodes;
+    private ClassParser parser;
+    private WatchService watchService;
+    private Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+    private Map<Path, RecordedEdges> classEdges = new ConcurrentHashMap<>();
+    private Thread watcher;
+    private RelationshipSink remover;
+
+    public ClassDirectoryWatcher(final ClassNodes classNodes, ClassParser classParser) throws IOException {
+        nodes = classNodes;
+        parser = classParser;
+        watchService = FileSystems.getDefault().newWatchService();
+        remover = new RelationshipSink() {
+            @Override
+            public void addRelationship(String clsName1, String clsName2, RelationshipType relationshipType) {
+                classNodes.removeRelationship(clsName1, clsName2, relationshipType);
+            }
+        };
+    }
+
+    /**
+     * watches the given directory and all directories below it
+     *
+     * @param root
+     * @throws IOException
+     */
+    public void register(File root) throws IOException {
+        registerTree(root.toPath());
+    }
+
+    /**
+     * returns the sink that the initial parse of a class file should add its
+     * relationships to, so they can be taken back out later
+     *
+     * @param classFile
+     * @return
+     */
+    public RelationshipSink track(File classFile) {
+        RecordedEdges edges = new RecordedEdges(nodes);
+        classEdges.put(classFile.toPath().toAbsolutePath(), edges);
+        return edges;
+    }
+
+    public void start() {
+        watcher = new Thread(this);
+        watcher.setName("class directory watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    public void terminate() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            LOGGER.error("Failed closing the directory watch service", e);
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path dir = watchedDirectories.get(key);
+                if (dir != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        handle(dir, event);
+                    }
+                }
+
+                if (!key.reset()) {
+                    watchedDirectories.remove(key);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            LOGGER.info("Directory watching stopped");
+        }
+    }
+
+    private void handle(Path dir, WatchEvent<?> event) {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            LOGGER.warn("Missed changes in {}, reparsing it", dir);
+            rescan(dir);
+            return;
+        }
+
+        Path path = dir.resolve((Path) event.context()).toAbsolutePath();
+        if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+            for (Path classFile : classEdges.keySet()) {
+                if (classFile.startsWith(path)) {
+                    unparse(classFile);
+                }
+            }
+        } else if (Files.isDirectory(path)) {
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                try {
+                    registerTree(path);
+                } catch (IOException e) {
+                    LOGGER.error("Failed watching new directory {}", path, e);
+                }
+                rescan(path);
+            }
+        } else if (isClassFile(path)) {
+            reparse(path);
+        }
+    }
+
+    private void rescan(Path dir) {
+        List<Path> classFiles = new ArrayList<>();
+        try {
+            Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (isClassFile(file)) {
+                        classFiles.add(file.toAbsolutePath());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            LOGGER.error("Failed rescanning directory {}", dir, e);
+        }
+
+        for (Path classFile : classFiles) {
+            reparse(classFile);
+        }
+    }
+
+    /**
+     * takes the old relationships of a class file out of the nodes, and adds those of
+     * its current version. The new relationships are only added once the whole file
+     * parsed, as a half written file fails partway, and would leave the relationships
+     * found before that in the nodes, with nothing to take them back out.
+     *
+     * @param classFile
+     */
+    void reparse(Path classFile) {
+        unparse(classFile);
+
+        try {
+            RecordedEdges edges = new RecordedEdges();
+            parser.parse(Files.readAllBytes(classFile), edges);
+            edges.replay(nodes);
+            classEdges.put(classFile, edges);
+            LOGGER.info("Reparsed class file {}", classFile);
+        } catch (IOException | RuntimeException e) {
+            // the compiler may still be writing it, a later event will bring it back
+            LOGGER.warn("Failed reparsing class file {}: {}", classFile, e.toString());
+        }
+    }
+
+    private void unparse(Path classFile) {
+        RecordedEdges edges = classEdges.remove(classFile);
+        if (edges != null) {
+            edges.replay(remover);
+        }
+    }
+
+    private void registerTree(Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                        StandardWatchEventKinds.ENTRY_DELETE);
+                watchedDirectories.put(key, dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static boolean isClassFile(Path path) {
+        return path.getFileName().toString().endsWith(".class");
+    }
+}
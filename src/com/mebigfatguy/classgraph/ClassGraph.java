@@ -18,6 +18,7 @@
 package com.mebigfatguy.classgraph;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -28,42 +29,131 @@ public class ClassGraph {
 	
 	private static final Logger LOGGER = LoggerFactory.getLogger(ClassGraph.class);
 	
+	private static final int DEFAULT_ITERATIONS = 1000;
+	private static final String DEFAULT_OUTPUT = "classgraph.graphml";
+	
 	private static GraphBuilder builder;
+	private static GraphFile saved;
 	
 	public static void main(String[] args) {
 		
-		if (args.length == 0) {
-			LOGGER.error("No classpath roots specified, no imaging can occur");
-			return;
-		}
-		
+		boolean headless = false;
+		int iterations = DEFAULT_ITERATIONS;
+		File output = new File(DEFAULT_OUTPUT);
+		File load = null;
+		File save = null;
 		Set<File> clsPath = new HashSet<>();
 		
 		for (String a : args) {
-			File f = new File(a);
-			if ((f.isFile() && f.getName().endsWith(".jar")) || f.isDirectory())
-				clsPath.add(f);
-			else {
-				LOGGER.error("Failed loading jar file {}.. ignored", a);
-				clsPath.clear();
-				break;
+			if (a.equals("--headless")) {
+				headless = true;
+			} else if (a.startsWith("--iterations=")) {
+				try {
+					iterations = Integer.parseInt(a.substring("--iterations=".length()));
+				} catch (NumberFormatException e) {
+					LOGGER.error("Invalid iteration count {}", a);
+					return;
+				}
+			} else if (a.startsWith("--output=")) {
+				output = new File(a.substring("--output=".length()));
+			} else if (a.startsWith("--load=")) {
+				load = new File(a.substring("--load=".length()));
+			} else if (a.startsWith("--save=")) {
+				save = new File(a.substring("--save=".length()));
+			} else {
+				File f = new File(a);
+				if ((f.isFile() && f.getName().endsWith(".jar")) || f.isDirectory())
+					clsPath.add(f);
+				else {
+					LOGGER.error("Failed loading jar file {}.. ignored", a);
+					clsPath.clear();
+					break;
+				}
 			}
 		}
 		
-		if (!clsPath.isEmpty()) {
-			builder = new GraphBuilder(clsPath);
-		    GraphDisplay gd = new GraphDisplay(builder.getNodes());
-		    
-		    gd.addTerminationListener(new TerminationListener() {
-		    	@Override
-		    	public void terminated() {
-		    		builder.terminate();
-		    		System.exit(0);
-		    	}
-		    });
-		    
-		    gd.display();
-            builder.build();
+		if ((save != null) && !headless) {
+			LOGGER.error("--save={} only applies to a --headless run", save);
+			return;
+		}
+		
+		if (load != null) {
+			try {
+				saved = GraphFile.load(load);
+				LOGGER.info("Loaded {} classes from {}", Integer.valueOf(saved.getNodeCount()), load);
+			} catch (IOException e) {
+				LOGGER.error("Failed loading graph file {}", load, e);
+				return;
+			}
+		} else if (clsPath.isEmpty()) {
+			LOGGER.error("No classpath roots specified, no imaging can occur");
+			return;
+		}
+		
+		builder = new GraphBuilder(clsPath, saved);
+		if (headless) {
+			runHeadless(iterations, output, save);
+		} else {
+			runDisplay();
+		}
+	}
+	
+	private static void runDisplay() {
+	    GraphDisplay gd = new GraphDisplay(builder.getNodes(), (saved == null) ? null : saved.getPositions());
+	    
+	    gd.addTerminationListener(new TerminationListener() {
+	    	@Override
+	    	public void terminated() {
+	    		builder.terminate();
+	    		System.exit(0);
+	    	}
+	    });
+	    
+	    gd.display();
+        builder.build();
+	}
+	
+	/**
+	 * builds the graph, lays it out and writes it to a file, without opening a window,
+	 * so it can run on build servers. A loaded graph only has its saved layout refined.
+	 * With a save file, the graph and layout are also saved to be loaded later.
+	 */
+	private static void runHeadless(int iterations, File output, File save) {
+		ForceLayout layout = null;
+		try {
+			builder.build();
+			builder.awaitCompletion();
+			
+			layout = new ForceLayout(builder.getNodes());
+			CompactGraph graph = builder.getNodes().getCompactGraph();
+			int ticks;
+			if (saved != null) {
+				layout.getPositions().copyFrom(saved.getPositions());
+				ticks = layout.settle(graph, iterations, ForceLayout.RADIUS);
+			} else {
+				if ((MultilevelLayout.THRESHOLD > 0) && (graph.getNodeCount() >= MultilevelLayout.THRESHOLD)) {
+					int levels = new MultilevelLayout(layout, null).layout(graph, null);
+					LOGGER.info("Placed {} nodes in {} levels", Integer.valueOf(graph.getNodeCount()), Integer.valueOf(levels));
+				}
+				ticks = layout.settle(iterations);
+			}
+			LOGGER.info("Layout ran {} iterations", Integer.valueOf(ticks));
+			
+			new GraphExporter(builder.getNodes(), layout.getGraph(), layout.getPositions()).export(output);
+			LOGGER.info("Graph written to {}", output);
+			if (save != null) {
+				GraphFile.save(save, builder.getNodes(), layout.getGraph(), layout.getPositions());
+				LOGGER.info("Graph saved to {}", save);
+			}
+		} catch (InterruptedException e) {
+			LOGGER.error("Interrupted while building the graph");
+		} catch (IOException e) {
+			LOGGER.error("Failed writing graph", e);
+		} finally {
+			if (layout != null) {
+				layout.terminate();
+			}
+			builder.terminate();
 		}
 	}
 }
@@ -17,40 +17,103 @@
  */
 package com.mebigfatguy.classgraph;
 
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.objectweb.asm.AnnotationVisitor;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
 
+/**
+ * finds the relationships of one class. Beyond the class structure, method signatures,
+ * annotations and generic signatures are read at the SIGNATURES level, and method
+ * bodies at the CODE level. Relationships of those kinds are added once per class and
+ * target, however often the class mentions the target.
+ */
 public class ClassGraphBuildingVisitor extends ClassVisitor {
 
-    private ClassNodes classNodes;
+    private RelationshipSink classNodes;
+    private ExtractionLevel level;
+    private DescriptorCache descriptors;
     private String clsName;
+    private Map<RelationshipType, Set<String>> added = new EnumMap<>(RelationshipType.class);
+    private MemberVisitor memberVisitor = new MemberVisitor();
 
-    public ClassGraphBuildingVisitor(ClassNodes nodes) {
+    public ClassGraphBuildingVisitor(RelationshipSink nodes, ExtractionLevel extractionLevel, DescriptorCache descriptorCache) {
         super(Opcodes.ASM9);
         classNodes = nodes;
+        level = extractionLevel;
+        descriptors = descriptorCache;
     }
 
     @Override
     public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
-        clsName = internalToExternalName(name);
-        String superClsName = internalToExternalName(superName);
+        clsName = descriptors.className(name);
 
-        classNodes.addRelationship(clsName, superClsName, RelationshipType.INHERITANCE);
+        // only java.lang.Object and module-info have no superclass
+        if (superName != null) {
+            String superClsName = descriptors.className(superName);
+            classNodes.addRelationship(clsName, superClsName, RelationshipType.INHERITANCE);
+        }
 
         for (String inf : interfaces) {
-            String interfaceClsName = internalToExternalName(inf);
+            String interfaceClsName = descriptors.className(inf);
             classNodes.addRelationship(clsName, interfaceClsName, RelationshipType.INTERFACE);
         }
+
+        if ((signature != null) && (level != ExtractionLevel.STRUCTURE)) {
+            addOnce(descriptors.signatureClasses(signature), RelationshipType.GENERIC);
+        }
+    }
+
+    @Override
+    public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+        if (level != ExtractionLevel.STRUCTURE) {
+            addOnce(descriptors.descriptorClasses(desc), RelationshipType.ANNOTATION);
+        }
+        return null;
     }
 
     @Override
     public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
         if (desc.startsWith("L")) {
-            String fieldClsName = internalToExternalName(desc.substring(1, desc.length() - 1));
+            String fieldClsName = descriptors.descriptorClasses(desc)[0];
             classNodes.addRelationship(clsName, fieldClsName, RelationshipType.CONTAINMENT);
         }
-        return null;
+
+        if (level == ExtractionLevel.STRUCTURE) {
+            return null;
+        }
+
+        if (signature != null) {
+            addOnce(descriptors.signatureClasses(signature), RelationshipType.GENERIC);
+        }
+        return memberVisitor.forField();
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+        if (level == ExtractionLevel.STRUCTURE) {
+            return null;
+        }
+
+        addOnce(descriptors.descriptorClasses(desc), RelationshipType.SIGNATURE);
+        if (exceptions != null) {
+            for (String exception : exceptions) {
+                addOnce(descriptors.className(exception), RelationshipType.SIGNATURE);
+            }
+        }
+        if (signature != null) {
+            addOnce(descriptors.signatureClasses(signature), RelationshipType.GENERIC);
+        }
+
+        return memberVisitor;
     }
 
     @Override
@@ -60,13 +123,106 @@ public class ClassGraphBuildingVisitor extends ClassVisitor {
             return;
         }
 
-        String outerClsName = internalToExternalName(outerName);
-        String innerClsName = internalToExternalName(name);
+        String outerClsName = descriptors.className(outerName);
+        String innerClsName = descriptors.className(name);
 
         classNodes.addRelationship(outerClsName, innerClsName, RelationshipType.INNER);
     }
 
-    private static String internalToExternalName(String name) {
-        return name.replace('/', '.');
+    private void addOnce(String[] targets, RelationshipType type) {
+        for (String target : targets) {
+            addOnce(target, type);
+        }
+    }
+
+    private void addOnce(String target, RelationshipType type) {
+        if ((target == null) || target.equals(clsName)) {
+            return;
+        }
+
+        Set<String> targets = added.get(type);
+        if (targets == null) {
+            targets = new HashSet<>();
+            added.put(type, targets);
+        }
+
+        if (targets.add(target)) {
+            classNodes.addRelationship(clsName, target, type);
+        }
+    }
+
+    /**
+     * picks up the annotations of fields and methods, and at the CODE level, the classes
+     * used by method bodies. One instance serves every member of the class.
+     */
+    private class MemberVisitor extends MethodVisitor {
+
+        private FieldVisitor fieldVisitor = new FieldVisitor(Opcodes.ASM9) {
+            @Override
+            public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                return MemberVisitor.this.visitAnnotation(desc, visible);
+            }
+        };
+
+        MemberVisitor() {
+            super(Opcodes.ASM9);
+        }
+
+        FieldVisitor forField() {
+            return fieldVisitor;
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+            addOnce(descriptors.descriptorClasses(desc), RelationshipType.ANNOTATION);
+            return null;
+        }
+
+        @Override
+        public AnnotationVisitor visitParameterAnnotation(int parameter, String desc, boolean visible) {
+            return visitAnnotation(desc, visible);
+        }
+
+        @Override
+        public void visitTypeInsn(int opcode, String type) {
+            RelationshipType relationshipType;
+            if (opcode == Opcodes.NEW) {
+                relationshipType = RelationshipType.INSTANTIATION;
+            } else if (opcode == Opcodes.ANEWARRAY) {
+                relationshipType = RelationshipType.TYPE_REFERENCE;
+            } else {
+                relationshipType = RelationshipType.CAST;
+            }
+            addOnce(descriptors.className(type), relationshipType);
+        }
+
+        @Override
+        public void visitMultiANewArrayInsn(String desc, int dims) {
+            addOnce(descriptors.className(desc), RelationshipType.TYPE_REFERENCE);
+        }
+
+        @Override
+        public void visitFieldInsn(int opcode, String owner, String name, String desc) {
+            addOnce(descriptors.className(owner), RelationshipType.FIELD_ACCESS);
+        }
+
+        @Override
+        public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean isInterface) {
+            addOnce(descriptors.className(owner), RelationshipType.INVOCATION);
+        }
+
+        @Override
+        public void visitLdcInsn(Object value) {
+            if ((value instanceof Type) && (((Type) value).getSort() == Type.OBJECT)) {
+                addOnce(descriptors.className(((Type) value).getInternalName()), RelationshipType.TYPE_REFERENCE);
+            }
+        }
+
+        @Override
+        public void visitTryCatchBlock(Label start, Label end, Label handler, String type) {
+            if (type != null) {
+                addOnce(descriptors.className(type), RelationshipType.CATCH);
+            }
+        }
     }
 }
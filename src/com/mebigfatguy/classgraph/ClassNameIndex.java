@@ -0,0 +1,143 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * finds classes by the start of their name, ignoring case. Every class is listed under
+ * its fully qualified name and under its simple name, in one sorted array, so a prefix
+ * is found by binary search, and its matches are the run of entries that follows.
+ * Classes added since the last search are sorted on their own and merged in. An
+ * index is only used by one thread.
+ */
+public class ClassNameIndex {
+
+    private ClassNodes classNodes;
+    private int indexedCount;
+    private String[] names = new String[0];
+    private int[] classes = new int[0];
+
+    public ClassNameIndex(ClassNodes nodes) {
+        classNodes = nodes;
+    }
+
+    /**
+     * @param prefix
+     * @return the number of names that start with the prefix
+     */
+    public int count(String prefix) {
+        refresh();
+        String key = prefix.toLowerCase(Locale.ROOT);
+        int first = firstAtOrAfter(key);
+        int last = first;
+        while ((last < names.length) && names[last].startsWith(key)) {
+            ++last;
+        }
+        return last - first;
+    }
+
+    /**
+     * @param prefix
+     * @param n
+     *            which match, in name order, from 0 to {@link #count(String)} - 1
+     * @return the class index of the match, or -1 if there are not that many
+     */
+    public int get(String prefix, int n) {
+        refresh();
+        String key = prefix.toLowerCase(Locale.ROOT);
+        int slot = firstAtOrAfter(key) + n;
+        if ((n < 0) || (slot >= names.length) || !names[slot].startsWith(key)) {
+            return -1;
+        }
+        return classes[slot];
+    }
+
+    private int firstAtOrAfter(String key) {
+        int low = 0;
+        int high = names.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (names[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * sorts the names of the classes added since the last refresh, and merges them into
+     * the sorted names, so that a growing graph costs a pass over the index rather than
+     * a full sort
+     */
+    private void refresh() {
+        int count = classNodes.size();
+        if (count == indexedCount) {
+            return;
+        }
+
+        Entry[] entries = new Entry[(count - indexedCount) * 2];
+        int size = 0;
+        for (int i = indexedCount; i < count; ++i) {
+            ClassNode node = classNodes.getNode(i);
+            String fqcn = node.getFQCN().toLowerCase(Locale.ROOT);
+            entries[size++] = new Entry(fqcn, i);
+            if (node.getSimpleName().length() != node.getFQCN().length()) {
+                entries[size++] = new Entry(node.getSimpleName().toLowerCase(Locale.ROOT), i);
+            }
+        }
+        Arrays.sort(entries, 0, size);
+
+        String[] newNames = new String[names.length + size];
+        int[] newClasses = new int[newNames.length];
+        int o = 0;
+        int e = 0;
+        for (int m = 0; m < newNames.length; ++m) {
+            // added classes have higher indices, so they follow old entries of the same name
+            if ((e == size) || ((o < names.length) && (names[o].compareTo(entries[e].name) <= 0))) {
+                newNames[m] = names[o];
+                newClasses[m] = classes[o++];
+            } else {
+                newNames[m] = entries[e].name;
+                newClasses[m] = entries[e++].cls;
+            }
+        }
+        names = newNames;
+        classes = newClasses;
+        indexedCount = count;
+    }
+
+    private static class Entry implements Comparable<Entry> {
+        String name;
+        int cls;
+
+        Entry(String entryName, int classIndex) {
+            name = entryName;
+            cls = classIndex;
+        }
+
+        @Override
+        public int compareTo(Entry o) {
+            int cmp = name.compareTo(o.name);
+            return (cmp != 0) ? cmp : Integer.compare(cls, o.cls);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * hands out one canonical String per class name, so that the parsers, the graph cache
+ * and the nodes all share the same instances, and name memory grows with the number of
+ * distinct classes rather than with the number of relationships. Each name also gets a
+ * small int id, in the order names are first seen, so that relationships can be
+ * buffered as ints rather than as names. The parsers also register the slashed internal
+ * names they meet as aliases of the dotted names, so that a class file name is only
+ * converted once.
+ */
+public class ClassNameTable {
+
+    /** ids fit in 30 bits, so that two of them and a type pack into one long */
+    public static final int MAX_NAMES = 1 << 30;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private Object addLock = new Object();
+    private volatile String[] names = new String[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * @param name
+     * @return the canonical instance of the name, which is the given one if the name is
+     *         new
+     */
+    public String intern(String name) {
+        return name(id(name));
+    }
+
+    /**
+     * @param name
+     *            a dotted class name, or an alias registered with {@link #alias}
+     * @return the id of the name, which is given the next id if it is new
+     */
+    public int id(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id.intValue();
+        }
+
+        synchronized (addLock) {
+            id = ids.get(name);
+            if (id == null) {
+                if (size == MAX_NAMES) {
+                    throw new IllegalStateException("More than " + MAX_NAMES + " class names");
+                }
+                if (size == names.length) {
+                    names = Arrays.copyOf(names, size * 2);
+                }
+                names[size] = name;
+                id = Integer.valueOf(size++);
+                ids.put(name, id);
+            }
+            return id.intValue();
+        }
+    }
+
+    /**
+     * @param id
+     *            an id returned by {@link #id(String)}
+     * @return the canonical instance of the name with that id
+     */
+    public String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * @param spelling
+     *            a dotted class name, or an alias registered with {@link #alias}
+     * @return the canonical instance of the name, or null if it is not known yet
+     */
+    public String get(String spelling) {
+        Integer id = ids.get(spelling);
+        return (id == null) ? null : names[id.intValue()];
+    }
+
+    /**
+     * interns the name, and makes another spelling of it, such as its internal name,
+     * look up the same instance
+     *
+     * @param spelling
+     * @param name
+     *            the dotted class name
+     * @return the canonical instance of the name
+     */
+    public String alias(String spelling, String name) {
+        int id = id(name);
+        String canonical = names[id];
+        if (!spelling.equals(canonical)) {
+            ids.putIfAbsent(spelling, Integer.valueOf(id));
+        }
+        return canonical;
+    }
+}
@@ -26,11 +26,11 @@ public class ClassNode {
     private String fqcn;
     private String simpleName;
     private ClassType clsType;
-    private float[] position = { 0.0f, 0.0f, 0.0f };
+    private int index;
 
-    private Map<String, Float> relationships = new ConcurrentHashMap<>();
+    private Map<String, EdgeWeight> relationships = new ConcurrentHashMap<>();
 
-    public ClassNode(String className, ClassType classType) {
+    public ClassNode(String className, ClassType classType, int nodeIndex) {
         fqcn = className;
         int dotPos = className.lastIndexOf('.');
         if (dotPos >= 0) {
@@ -39,22 +39,67 @@ public class ClassNode {
             simpleName = className;
         }
         clsType = classType;
+        index = nodeIndex;
     }
 
+    /**
+     * adds the weight of the relationship type to the weight towards the given class.
+     * Threads adding to the same relationship don't lose each other's updates, and once
+     * the relationship exists, adding doesn't allocate.
+     *
+     * @param clsName
+     * @param type
+     */
     public void addRelationship(String clsName, RelationshipType type) {
-        Float count = relationships.get(clsName);
-        if (count == null) {
-            count = Float.valueOf(type.getWeight());
-        } else {
-            count = Float.valueOf(count.floatValue() + type.getWeight());
+        addWeight(clsName, type.getWeight());
+    }
+
+    /**
+     * adds to the weight towards the given class, creating the relationship if needed,
+     * even for a weight of 0
+     *
+     * @param clsName
+     * @param delta
+     */
+    public void addWeight(String clsName, float delta) {
+        while (true) {
+            EdgeWeight weight = relationships.get(clsName);
+            if (weight == null) {
+                weight = relationships.computeIfAbsent(clsName, name -> new EdgeWeight());
+            }
+            if (weight.add(delta)) {
+                return;
+            }
+            // removed by another thread, which may not have unmapped it yet
+            relationships.remove(clsName, weight);
         }
-        relationships.put(clsName, count);
     }
 
-    public Map<String, Float> getRelationships() {
+    /**
+     * takes the weight of the relationship type back, removing the relationship once
+     * nothing is left. Threads adding to the relationship at the same time either add
+     * to it before it is removed, or to a new relationship after.
+     *
+     * @param clsName
+     * @param type
+     */
+    public void removeRelationship(String clsName, RelationshipType type) {
+        relationships.computeIfPresent(clsName, (name, weight) -> weight.subtract(type.getWeight()) ? null : weight);
+    }
+
+    public Map<String, EdgeWeight> getRelationships() {
         return Collections.unmodifiableMap(relationships);
     }
 
+    /**
+     * @param clsName
+     * @return the summed weight towards the given class, or 0 if there is no relationship
+     */
+    public float getWeight(String clsName) {
+        EdgeWeight weight = relationships.get(clsName);
+        return (weight == null) ? 0.0f : weight.get();
+    }
+
     public String getFQCN() {
         return fqcn;
     }
@@ -71,8 +116,12 @@ public class ClassNode {
         return clsType.color();
     }
 
-    public float[] getPosition() {
-        return position;
+    /**
+     * @return the dense index of this node, used to find it in {@link ClassNodes#getNode(int)}
+     *         and its position in {@link LayoutPositions}
+     */
+    public int getIndex() {
+        return index;
     }
 
     @Override
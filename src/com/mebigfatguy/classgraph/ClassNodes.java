@@ -17,42 +17,164 @@
  */
 package com.mebigfatguy.classgraph;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class ClassNodes implements Iterable<ClassNode> {
+public class ClassNodes implements Iterable<ClassNode>, RelationshipSink {
+
+	private static final int INITIAL_CAPACITY = 1024;
 
 	private ClassFinder clsFinder;
+	private ClassNameTable nameTable = new ClassNameTable();
 	private Map<String, ClassNode> nodes = new ConcurrentHashMap<>();
+	private Object indexLock = new Object();
+	private volatile ClassNode[] indexedNodes = new ClassNode[INITIAL_CAPACITY];
+	private volatile int nodeCount;
+	private AtomicLong modificationCount = new AtomicLong();
+	private CompactGraph compactGraph;
+	private long compactGraphModification = -1;
+	// a saved graph whose relationships aren't in the nodes' maps yet
+	private volatile GraphFile unfilledGraph;
 
 	public ClassNodes(ClassFinder finder) {
 		clsFinder = finder;
 	}
 
+	/**
+	 * starts from a saved graph, whose nodes keep their saved indices and types. The
+	 * saved compact graph is used as is, and its relationships are only added to the
+	 * nodes, with their summed weights, once relationships are added, removed or asked
+	 * for, so that opening a large saved graph doesn't wait for that.
+	 *
+	 * @param finder
+	 *            the finder of the types of classes added later on
+	 * @param saved
+	 */
+	public ClassNodes(ClassFinder finder, GraphFile saved) {
+		this(finder);
+
+		for (int i = 0; i < saved.getNodeCount(); ++i) {
+			addNode(saved.getName(i), saved.getType(i));
+		}
+
+		compactGraph = saved.getGraph();
+		compactGraphModification = modificationCount.get();
+		unfilledGraph = saved;
+	}
+
 	/**
 	 * add both nodes to the map, but only put the classes with later names as
 	 * dependencies of classes with earlier names, so we don't duplicate the
-	 * relationship.
+	 * relationship. The relationship is keyed by the node's own name instance, so that
+	 * relationship keys don't keep copies of names alive.
 	 *
 	 * @param clsName1
 	 * @param clsName2
 	 * @param relationshipType
 	 */
+	@Override
 	public void addRelationship(String clsName1, String clsName2, RelationshipType relationshipType) {
+		fillRelationships();
 
 		int cmp = clsName1.compareTo(clsName2);
 		if (cmp == 0) {
 			return;
 		}
 
+		ClassNode node1 = nodeFor(clsName1);
+		ClassNode node2 = nodeFor(clsName2);
 		if (cmp < 0) {
-			addNodeToNode(clsName1, clsName2, relationshipType);
-			addNodeToNode(clsName2, null, RelationshipType.UNKNOWN);
+			node1.addRelationship(node2.getFQCN(), relationshipType);
 		} else {
-			addNodeToNode(clsName1, null, RelationshipType.UNKNOWN);
-			addNodeToNode(clsName2, clsName1, relationshipType);
+			node2.addRelationship(node1.getFQCN(), relationshipType);
+		}
+		modificationCount.incrementAndGet();
+	}
+
+	/**
+	 * adds a batch of relationships, sorting it first so that repeated relationships are
+	 * summed and added once, and each node is looked up once per run of relationships
+	 * from it
+	 *
+	 * @param edges
+	 */
+	@Override
+	public void addRelationships(EdgeBuffer edges) {
+
+		int count = edges.size();
+		if (count == 0) {
+			return;
 		}
+
+		fillRelationships();
+
+		edges.sort();
+
+		ClassNode lowerNode = null;
+		int lowerNodeId = -1;
+		int i = 0;
+		while (i < count) {
+			int lower = edges.getLowerId(i);
+			int higher = edges.getHigherId(i);
+			float weight = edges.getType(i).getWeight();
+			int j = i + 1;
+			while ((j < count) && (lower == edges.getLowerId(j)) && (higher == edges.getHigherId(j))) {
+				weight += edges.getType(j).getWeight();
+				++j;
+			}
+
+			if (lowerNodeId != lower) {
+				lowerNode = nodeFor(edges.getLower(i));
+				lowerNodeId = lower;
+			}
+			lowerNode.addWeight(nodeFor(edges.getHigher(i)).getFQCN(), weight);
+			i = j;
+		}
+		modificationCount.incrementAndGet();
+	}
+
+	/**
+	 * takes back a relationship that was added with addRelationship, removing it
+	 * entirely once its weight drops to zero. The nodes themselves are kept, so that
+	 * their indices and layout positions stay put.
+	 *
+	 * @param clsName1
+	 * @param clsName2
+	 * @param relationshipType
+	 */
+	public void removeRelationship(String clsName1, String clsName2, RelationshipType relationshipType) {
+		fillRelationships();
+
+		int cmp = clsName1.compareTo(clsName2);
+		if (cmp == 0) {
+			return;
+		}
+
+		ClassNode node = nodes.get((cmp < 0) ? clsName1 : clsName2);
+		if (node != null) {
+			node.removeRelationship((cmp < 0) ? clsName2 : clsName1, relationshipType);
+			modificationCount.incrementAndGet();
+		}
+	}
+
+	/**
+	 * returns a compressed sparse row copy of the current nodes and relationships. The
+	 * copy is only rebuilt when nodes or relationships were added since the last call, so
+	 * once parsing is done, this is just a field read.
+	 *
+	 * @return
+	 */
+	public synchronized CompactGraph getCompactGraph() {
+		long modification = modificationCount.get();
+		if ((compactGraph == null) || (modification != compactGraphModification)) {
+			compactGraph = CompactGraph.build(this, nodeCount);
+			compactGraphModification = modification;
+		}
+
+		return compactGraph;
 	}
 
 	/**
@@ -63,6 +185,7 @@ public class ClassNodes implements Iterable<ClassNode> {
 	 * @return
 	 */
 	public float getAttractionBetween(ClassNode node1, ClassNode node2) {
+		fillRelationships();
 
 		if (node1.getFQCN().compareTo(node2.getFQCN()) > 0) {
 			ClassNode tmp = node1;
@@ -70,26 +193,98 @@ public class ClassNodes implements Iterable<ClassNode> {
 			node2 = tmp;
 		}
 
-		Float attraction = node1.getRelationships().get(node2.getFQCN());
-		if (attraction == null) {
-			return 0.0f;
+		return node1.getWeight(node2.getFQCN());
+	}
+
+	/**
+	 * @return a count that goes up whenever a node or relationship is added or removed
+	 */
+	public long getModificationCount() {
+		return modificationCount.get();
+	}
+
+	/**
+	 * @return the number of nodes, all of which have an index below this count
+	 */
+	public int size() {
+		return nodeCount;
+	}
+
+	/**
+	 * returns the node with the given index, which must be below {@link #size()}
+	 *
+	 * @param index
+	 * @return
+	 */
+	public ClassNode getNode(int index) {
+		return indexedNodes[index];
+	}
+
+	/**
+	 * adds the relationships of the saved graph the nodes started from to the nodes, if
+	 * that hasn't happened yet. Every relationship is stored in both rows of the saved
+	 * graph, and is added once, from the earlier name.
+	 */
+	private void fillRelationships() {
+		if (unfilledGraph == null) {
+			return;
 		}
 
-		return attraction.floatValue();
+		synchronized (indexLock) {
+			GraphFile saved = unfilledGraph;
+			if (saved == null) {
+				return;
+			}
+
+			CompactGraph graph = saved.getGraph();
+			int[] offsets = graph.getOffsets();
+			int[] targets = graph.getTargets();
+			float[] weights = graph.getWeights();
+			for (int i = 0; i < saved.getNodeCount(); ++i) {
+				ClassNode node = indexedNodes[i];
+				for (int k = offsets[i]; k < offsets[i + 1]; ++k) {
+					ClassNode target = indexedNodes[targets[k]];
+					if (node.getFQCN().compareTo(target.getFQCN()) < 0) {
+						node.addWeight(target.getFQCN(), weights[k]);
+					}
+				}
+			}
+			unfilledGraph = null;
+		}
 	}
 
-	private void addNodeToNode(String clsName1, String clsName2, RelationshipType relationshipType) {
-		ClassNode node = nodes.get(clsName1);
+	private ClassNode nodeFor(String clsName) {
+		ClassNode node = nodes.get(clsName);
 		if (node == null) {
-
-			node = new ClassNode(clsName1, clsFinder.classStatus(clsName1));
-			nodes.put(clsName1, node);
+			node = addNode(clsName, clsFinder.classStatus(clsName));
 		}
-		if (clsName2 != null) {
-			node.addRelationship(clsName2, relationshipType);
+		return node;
+	}
+
+	private ClassNode addNode(String clsName, ClassType type) {
+		synchronized (indexLock) {
+			ClassNode node = nodes.get(clsName);
+			if (node == null) {
+				node = new ClassNode(nameTable.intern(clsName), type, nodeCount);
+				if (node.getIndex() == indexedNodes.length) {
+					indexedNodes = Arrays.copyOf(indexedNodes, indexedNodes.length * 2);
+				}
+				indexedNodes[node.getIndex()] = node;
+				nodes.put(node.getFQCN(), node);
+				nodeCount = node.getIndex() + 1;
+			}
+			return node;
 		}
 	}
 
+	/**
+	 * @return the table that class names are interned in, to be shared by everything
+	 *         that produces names for these nodes
+	 */
+	public ClassNameTable getNameTable() {
+		return nameTable;
+	}
+
 	Map<String, ClassNode> get() {
 		return nodes;
 	}
@@ -0,0 +1,51 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import org.objectweb.asm.ClassReader;
+
+/**
+ * turns class file bytes into relationships at one extraction level, sharing a
+ * descriptor cache across every thread that parses with it
+ */
+public class ClassParser {
+
+    private ExtractionLevel level;
+    private DescriptorCache descriptors;
+
+    public ClassParser(ExtractionLevel extractionLevel, ClassNameTable nameTable) {
+        level = extractionLevel;
+        descriptors = new DescriptorCache(nameTable);
+    }
+
+    public ExtractionLevel getLevel() {
+        return level;
+    }
+
+    /**
+     * drops the decoded descriptors, once the build no longer needs them
+     */
+    public void parsingCompleted() {
+        descriptors.clear();
+    }
+
+    public void parse(byte[] classBytes, RelationshipSink sink) {
+        ClassReader cr = new ClassReader(classBytes);
+        cr.accept(new ClassGraphBuildingVisitor(sink, level, descriptors), level.getReaderFlags());
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * an immutable, compressed sparse row copy of the relationships between class nodes.
+ * Nodes are identified by {@link ClassNode#getIndex()}, and every relationship is
+ * stored in both directions, so the neighbours of node i are
+ * {@code targets[offsets[i]] .. targets[offsets[i + 1] - 1]}, sorted by index, with the
+ * summed relationship weights in the matching slots of weights.
+ */
+public class CompactGraph {
+
+    private int nodeCount;
+    private int[] offsets;
+    private int[] targets;
+    private float[] weights;
+
+    CompactGraph(int count, int[] rowOffsets, int[] rowTargets, float[] rowWeights) {
+        nodeCount = count;
+        offsets = rowOffsets;
+        targets = rowTargets;
+        weights = rowWeights;
+    }
+
+    /**
+     * builds the graph over the first count nodes of the given nodes. Relationships
+     * to classes that have no node, or a node at or beyond count, are left out.
+     *
+     * @param nodes
+     * @param count
+     * @return
+     */
+    static CompactGraph build(ClassNodes nodes, int count) {
+        Map<String, ClassNode> nodeMap = nodes.get();
+
+        int[] degrees = new int[count];
+        int edgeCount = 0;
+        for (int i = 0; i < count; ++i) {
+            for (String target : nodes.getNode(i).getRelationships().keySet()) {
+                ClassNode targetNode = nodeMap.get(target);
+                if ((targetNode != null) && (targetNode.getIndex() < count)) {
+                    ++degrees[i];
+                    ++degrees[targetNode.getIndex()];
+                    edgeCount += 2;
+                }
+            }
+        }
+
+        int[] offsets = new int[count + 1];
+        for (int i = 0; i < count; ++i) {
+            offsets[i + 1] = offsets[i] + degrees[i];
+        }
+
+        // pack each (target, weight) pair into a long, so that sorting a row sorts by target
+        int[] cursors = Arrays.copyOf(offsets, count);
+        long[] packed = new long[edgeCount];
+        for (int i = 0; i < count; ++i) {
+            for (Map.Entry<String, EdgeWeight> relationship : nodes.getNode(i).getRelationships().entrySet()) {
+                ClassNode targetNode = nodeMap.get(relationship.getKey());
+                if ((targetNode != null) && (targetNode.getIndex() < count)) {
+                    int j = targetNode.getIndex();
+                    int weightBits = Float.floatToRawIntBits(relationship.getValue().get());
+                    if ((cursors[i] < offsets[i + 1]) && (cursors[j] < offsets[j + 1])) {
+                        packed[cursors[i]++] = pack(j, weightBits);
+                        packed[cursors[j]++] = pack(i, weightBits);
+                    }
+                }
+            }
+        }
+
+        int[] targets = new int[edgeCount];
+        float[] weights = new float[edgeCount];
+        for (int i = 0; i < count; ++i) {
+            int start = offsets[i];
+            Arrays.sort(packed, start, cursors[i]);
+            for (int k = start; k < cursors[i]; ++k) {
+                targets[k] = (int) (packed[k] >>> 32);
+                weights[k] = Float.intBitsToFloat((int) packed[k]);
+            }
+        }
+
+        return compact(count, offsets, cursors, targets, weights);
+    }
+
+    /**
+     * builds the graph between groups of this graph's nodes, where each group becomes one
+     * node, and the relationships between two groups are summed into one. Relationships
+     * within a group are left out.
+     *
+     * @param groupOf
+     *            the group of each node, from 0 to groupCount - 1
+     * @param groupCount
+     * @return
+     */
+    public CompactGraph coarsen(int[] groupOf, int groupCount) {
+        int[] offsets = new int[groupCount + 1];
+        for (int i = 0; i < nodeCount; ++i) {
+            offsets[groupOf[i] + 1] += this.offsets[i + 1] - this.offsets[i];
+        }
+        for (int g = 0; g < groupCount; ++g) {
+            offsets[g + 1] += offsets[g];
+        }
+
+        int[] cursors = Arrays.copyOf(offsets, groupCount);
+        long[] packed = new long[offsets[groupCount]];
+        for (int i = 0; i < nodeCount; ++i) {
+            int group = groupOf[i];
+            for (int k = this.offsets[i]; k < this.offsets[i + 1]; ++k) {
+                int targetGroup = groupOf[targets[k]];
+                if (targetGroup != group) {
+                    packed[cursors[group]++] = pack(targetGroup, Float.floatToRawIntBits(weights[k]));
+                }
+            }
+        }
+
+        // sort each row by target group, and sum the runs of the same group into one slot
+        int[] ends = new int[groupCount];
+        int[] groupTargets = new int[packed.length];
+        float[] groupWeights = new float[packed.length];
+        for (int g = 0; g < groupCount; ++g) {
+            int end = offsets[g];
+            Arrays.sort(packed, offsets[g], cursors[g]);
+            for (int k = offsets[g]; k < cursors[g]; ++k) {
+                int target = (int) (packed[k] >>> 32);
+                float weight = Float.intBitsToFloat((int) packed[k]);
+                if ((end > offsets[g]) && (groupTargets[end - 1] == target)) {
+                    groupWeights[end - 1] += weight;
+                } else {
+                    groupTargets[end] = target;
+                    groupWeights[end] = weight;
+                    ++end;
+                }
+            }
+            ends[g] = end;
+        }
+
+        return compact(groupCount, offsets, ends, groupTargets, groupWeights);
+    }
+
+    private static long pack(int target, int weightBits) {
+        return (((long) target) << 32) | (weightBits & 0xFFFFFFFFL);
+    }
+
+    /**
+     * relationships that show up between the counting and the filling pass, or that are
+     * merged, can leave rows short of their counted length, in which case the rows are
+     * closed up
+     */
+    private static CompactGraph compact(int count, int[] offsets, int[] ends, int[] targets, float[] weights) {
+        boolean full = true;
+        for (int i = 0; i < count; ++i) {
+            if (ends[i] != offsets[i + 1]) {
+                full = false;
+                break;
+            }
+        }
+
+        if (full) {
+            return new CompactGraph(count, offsets, targets, weights);
+        }
+
+        int[] newOffsets = new int[count + 1];
+        for (int i = 0; i < count; ++i) {
+            newOffsets[i + 1] = newOffsets[i] + (ends[i] - offsets[i]);
+        }
+
+        int[] newTargets = new int[newOffsets[count]];
+        float[] newWeights = new float[newOffsets[count]];
+        for (int i = 0; i < count; ++i) {
+            int length = ends[i] - offsets[i];
+            System.arraycopy(targets, offsets[i], newTargets, newOffsets[i], length);
+            System.arraycopy(weights, offsets[i], newWeights, newOffsets[i], length);
+        }
+
+        return new CompactGraph(count, newOffsets, newTargets, newWeights);
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return the number of stored edges, which counts each relationship twice
+     */
+    public int getEdgeCount() {
+        return targets.length;
+    }
+
+    public int[] getOffsets() {
+        return offsets;
+    }
+
+    public int[] getTargets() {
+        return targets;
+    }
+
+    public float[] getWeights() {
+        return weights;
+    }
+
+    public boolean isAdjacent(int node1, int node2) {
+        return find(node1, node2) >= 0;
+    }
+
+    /**
+     * @param node1
+     * @param node2
+     * @return the summed relationship weight between the two nodes, or 0 if unrelated
+     */
+    public float getWeight(int node1, int node2) {
+        int slot = find(node1, node2);
+        return (slot >= 0) ? weights[slot] : 0.0f;
+    }
+
+    private int find(int node1, int node2) {
+        if ((offsets[node1 + 1] - offsets[node1]) > (offsets[node2 + 1] - offsets[node2])) {
+            int tmp = node1;
+            node1 = node2;
+            node2 = tmp;
+        }
+
+        int slot = Arrays.binarySearch(targets, offsets[node1], offsets[node1 + 1], node2);
+        return (slot >= 0) ? slot : -1;
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.signature.SignatureReader;
+import org.objectweb.asm.signature.SignatureVisitor;
+
+/**
+ * decodes internal names, descriptors and generic signatures into the dotted names of
+ * the classes they mention. Every distinct string is decoded once, and shared by all
+ * parser threads from then on, as the same descriptors turn up in class after class.
+ * Class names are interned in, and looked up by internal name from, the
+ * {@link ClassNameTable} of the nodes.
+ */
+public class DescriptorCache {
+
+    private static final String[] NO_CLASSES = new String[0];
+
+    private ClassNameTable nameTable;
+    private Map<String, String[]> descriptors = new ConcurrentHashMap<>();
+    private Map<String, String[]> signatures = new ConcurrentHashMap<>();
+
+    public DescriptorCache(ClassNameTable classNameTable) {
+        nameTable = classNameTable;
+    }
+
+    /**
+     * @param internalName
+     *            a slashed class name, or an array descriptor as used for array owners
+     * @return the dotted name of the class, or of the array's element class, or null for
+     *         arrays of primitives
+     */
+    public String className(String internalName) {
+        String name = nameTable.get(internalName);
+        if (name != null) {
+            return name;
+        }
+
+        int dims = 0;
+        while ((dims < internalName.length()) && (internalName.charAt(dims) == '[')) {
+            ++dims;
+        }
+
+        if (dims > 0) {
+            if (internalName.charAt(dims) != 'L') {
+                return null;
+            }
+            name = internalName.substring(dims + 1, internalName.length() - 1).replace('/', '.');
+        } else {
+            name = internalName.replace('/', '.');
+        }
+
+        return nameTable.alias(internalName, name);
+    }
+
+    /**
+     * @param descriptor
+     *            a field or method descriptor
+     * @return the classes the descriptor mentions, including array element classes
+     */
+    public String[] descriptorClasses(String descriptor) {
+        String[] names = descriptors.get(descriptor);
+        if (names == null) {
+            names = decodeDescriptor(descriptor);
+            String[] existing = descriptors.putIfAbsent(descriptor, names);
+            if (existing != null) {
+                names = existing;
+            }
+        }
+        return names;
+    }
+
+    /**
+     * @param signature
+     *            a class, method or field generic signature
+     * @return the classes the signature mentions, including type arguments and bounds
+     */
+    public String[] signatureClasses(String signature) {
+        String[] names = signatures.get(signature);
+        if (names == null) {
+            SignatureCollector collector = new SignatureCollector();
+            new SignatureReader(signature).accept(collector);
+            names = collector.getClassNames();
+            String[] existing = signatures.putIfAbsent(signature, names);
+            if (existing != null) {
+                names = existing;
+            }
+        }
+        return names;
+    }
+
+    /**
+     * drops the descriptors and signatures decoded so far, once the build is parsed, so
+     * that the strings of a whole classpath aren't held for the rest of the session.
+     * Later lookups simply decode again. Class names stay in the name table, as the nodes
+     * hold them anyway.
+     */
+    public void clear() {
+        descriptors.clear();
+        signatures.clear();
+    }
+
+    private String[] decodeDescriptor(String descriptor) {
+        List<String> names = null;
+        int length = descriptor.length();
+        for (int i = 0; i < length; ++i) {
+            if (descriptor.charAt(i) == 'L') {
+                int end = descriptor.indexOf(';', i);
+                if (names == null) {
+                    names = new ArrayList<>();
+                }
+                names.add(className(descriptor.substring(i + 1, end)));
+                i = end;
+            }
+        }
+
+        return (names == null) ? NO_CLASSES : names.toArray(new String[names.size()]);
+    }
+
+    /**
+     * collects the class types of a signature, naming inner class types after their
+     * outer class, as in Map$Entry
+     */
+    private class SignatureCollector extends SignatureVisitor {
+
+        private Deque<String> classTypes = new ArrayDeque<>();
+        private List<String> names = new ArrayList<>();
+
+        SignatureCollector() {
+            super(Opcodes.ASM9);
+        }
+
+        @Override
+        public void visitClassType(String name) {
+            classTypes.push(name);
+        }
+
+        @Override
+        public void visitInnerClassType(String name) {
+            classTypes.push(classTypes.pop() + '$' + name);
+        }
+
+        @Override
+        public void visitEnd() {
+            String name = className(classTypes.pop());
+            if (!names.contains(name)) {
+                names.add(name);
+            }
+        }
+
+        String[] getClassNames() {
+            return names.isEmpty() ? NO_CLASSES : names.toArray(new String[names.size()]);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import java.util.Arrays;
+
+/**
+ * collects the relationships found by one parser thread, and hands them to a target
+ * sink in batches, so that the shared nodes are touched once per batch rather than once
+ * per relationship. Each relationship is stored with the earlier name first, the way
+ * {@link ClassNodes} keeps it, in parallel int columns of the names' ids in a
+ * {@link ClassNameTable} and a column of type ordinals, which grow up to the capacity as
+ * needed and are reused from batch to batch. The buffer is not thread safe.
+ */
+public class EdgeBuffer implements RelationshipSink {
+
+    private static final int INITIAL_SIZE = 64;
+    private static final int ID_BITS = 30;
+    private static final int TYPE_BITS = 4;
+    private static final long ID_MASK = (1L << ID_BITS) - 1;
+    private static final long TYPE_MASK = (1L << TYPE_BITS) - 1;
+    private static final RelationshipType[] TYPES = RelationshipType.values();
+
+    private RelationshipSink target;
+    private ClassNameTable nameTable;
+    private int capacity;
+    private int[] lowers;
+    private int[] highers;
+    private byte[] types;
+    private long[] keys = new long[0];
+    private int size;
+
+    /**
+     * @param targetSink
+     * @param batchCapacity
+     * @param classNameTable
+     *            the table that the names are given ids by, which should be the one of
+     *            the nodes the relationships end up in
+     */
+    public EdgeBuffer(RelationshipSink targetSink, int batchCapacity, ClassNameTable classNameTable) {
+        target = targetSink;
+        capacity = batchCapacity;
+        nameTable = classNameTable;
+        int initialSize = Math.min(INITIAL_SIZE, batchCapacity);
+        lowers = new int[initialSize];
+        highers = new int[initialSize];
+        types = new byte[initialSize];
+    }
+
+    @Override
+    public void addRelationship(String clsName1, String clsName2, RelationshipType relationshipType) {
+        int cmp = clsName1.compareTo(clsName2);
+        if (cmp == 0) {
+            return;
+        }
+
+        if (size == lowers.length) {
+            int grown = Math.min(capacity, size * 2);
+            lowers = Arrays.copyOf(lowers, grown);
+            highers = Arrays.copyOf(highers, grown);
+            types = Arrays.copyOf(types, grown);
+        }
+
+        lowers[size] = nameTable.id((cmp < 0) ? clsName1 : clsName2);
+        highers[size] = nameTable.id((cmp < 0) ? clsName2 : clsName1);
+        types[size] = (byte) relationshipType.ordinal();
+
+        if (++size == capacity) {
+            flush();
+        }
+    }
+
+    /**
+     * passes the buffered relationships on to the target sink, and empties the buffer
+     */
+    public void flush() {
+        if (size > 0) {
+            target.addRelationships(this);
+            size = 0;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * orders the buffered relationships by earlier id, then later id, so that duplicates
+     * are next to each other. Like the rows of a {@link CompactGraph}, each relationship
+     * is packed into a long, here of both ids and the type, and the longs are sorted.
+     */
+    public void sort() {
+        if (keys.length < size) {
+            keys = new long[lowers.length];
+        }
+        for (int i = 0; i < size; ++i) {
+            keys[i] = (((long) lowers[i]) << (ID_BITS + TYPE_BITS)) | (((long) highers[i]) << TYPE_BITS) | types[i];
+        }
+
+        Arrays.sort(keys, 0, size);
+
+        for (int i = 0; i < size; ++i) {
+            long key = keys[i];
+            lowers[i] = (int) ((key >>> (ID_BITS + TYPE_BITS)) & ID_MASK);
+            highers[i] = (int) ((key >>> TYPE_BITS) & ID_MASK);
+            types[i] = (byte) (key & TYPE_MASK);
+        }
+    }
+
+    public int getLowerId(int index) {
+        return lowers[index];
+    }
+
+    public int getHigherId(int index) {
+        return highers[index];
+    }
+
+    public String getLower(int index) {
+        return nameTable.name(lowers[index]);
+    }
+
+    public String getHigher(int index) {
+        return nameTable.name(highers[index]);
+    }
+
+    public RelationshipType getType(int index) {
+        return TYPES[types[index]];
+    }
+
+    /**
+     * passes every buffered relationship, one at a time, to the given sink
+     *
+     * @param sink
+     */
+    public void replay(RelationshipSink sink) {
+        for (int i = 0; i < size; ++i) {
+            sink.addRelationship(nameTable.name(lowers[i]), nameTable.name(highers[i]), TYPES[types[i]]);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * the summed weight of the relationships from one class to another, as a float that
+ * any number of threads can add to without locks or boxing. Once subtracting leaves
+ * nothing, the weight is marked removed in the same step, and takes no more adds, so
+ * that an add racing with the removal goes to a new weight instead of being lost.
+ */
+public class EdgeWeight {
+
+    // a NaN that no sum of weights produces
+    private static final int REMOVED = 0x7FC0DEAD;
+
+    private AtomicInteger bits = new AtomicInteger(Float.floatToRawIntBits(0.0f));
+
+    /**
+     * @param delta
+     * @return whether delta was added, which it isn't once the weight is removed
+     */
+    public boolean add(float delta) {
+        while (true) {
+            int current = bits.get();
+            if (current == REMOVED) {
+                return false;
+            }
+            float updated = Float.intBitsToFloat(current) + delta;
+            if (bits.compareAndSet(current, Float.floatToRawIntBits(updated))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * subtracts delta, and marks the weight removed if nothing is left
+     *
+     * @param delta
+     * @return whether the weight is now removed
+     */
+    public boolean subtract(float delta) {
+        while (true) {
+            int current = bits.get();
+            if (current == REMOVED) {
+                return true;
+            }
+            float updated = Float.intBitsToFloat(current) - delta;
+            int next = (updated > 0.0f) ? Float.floatToRawIntBits(updated) : REMOVED;
+            if (bits.compareAndSet(current, next)) {
+                return next == REMOVED;
+            }
+        }
+    }
+
+    /**
+     * @return the weight, or 0 once removed
+     */
+    public float get() {
+        int current = bits.get();
+        return (current == REMOVED) ? 0.0f : Float.intBitsToFloat(current);
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(get());
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import java.util.Locale;
+
+import org.objectweb.asm.ClassReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * how much of each class file is turned into relationships. Method bodies are only
+ * read at the CODE level, the other levels let the class reader skip them entirely.
+ */
+public enum ExtractionLevel {
+
+    /** superclass, interfaces, field types and inner classes */
+    STRUCTURE(ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES),
+    /** also method signatures, thrown exceptions, annotations and generic signatures */
+    SIGNATURES(ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES),
+    /**
+     * also the classes that method bodies invoke, access fields of, instantiate, cast to,
+     * catch, create arrays of and load as class literals
+     */
+    CODE(ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExtractionLevel.class);
+
+    private int readerFlags;
+
+    ExtractionLevel(int flags) {
+        readerFlags = flags;
+    }
+
+    public int getReaderFlags() {
+        return readerFlags;
+    }
+
+    /**
+     * @return the level named by the classgraph.extract system property, STRUCTURE by
+     *         default
+     */
+    public static ExtractionLevel fromSystemProperties() {
+        String level = System.getProperty("classgraph.extract", STRUCTURE.name());
+        try {
+            return valueOf(level.toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException e) {
+            LOGGER.error("Unknown extraction level {}, using {}", level, STRUCTURE);
+            return STRUCTURE;
+        }
+    }
+}
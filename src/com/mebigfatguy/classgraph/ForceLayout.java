@@ -0,0 +1,374 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * the force directed layout of the class nodes. Each tick computes repulsion and
+ * attraction against the packed {@link LayoutPositions} on a fork join pool. The nodes
+ * are split into one chunk per thread, and each chunk adds its forces into its own
+ * buffer, so no two workers write the same slot. The buffers are then summed in chunk
+ * order and applied, which keeps a tick deterministic for a given seed and thread count.
+ * The chunk tasks, buffers and random sources are reused from tick to tick.
+ * <p>
+ * How far a node may move in one tick is capped by a temperature, which cools a little
+ * every tick, so that the layout freezes instead of oscillating. Whenever the graph
+ * changes, the layout is heated up again.
+ * <p>
+ * The cap shrinks by -Dclassgraph.layout.cooling every tick. A layout whose forces
+ * balance settles as soon as its nodes move less than the convergence threshold. One
+ * whose nodes keep pushing each other settles once the cap itself falls below that
+ * threshold, which takes about ln(threshold / initial) / ln(cooling) ticks: around 420
+ * ticks at the default of 0.98, and around 850 at 0.99. A tick budget, such as
+ * --iterations, that is shorter than this can cut the layout off while it is still
+ * moving.
+ */
+public class ForceLayout {
+
+    public static final float RADIUS = 6.378f;
+
+    /** the furthest nodes repel each other, and the edge of a grid repulsion cell */
+    static final float LONG_REPEL_DISTANCE = RADIUS * 8.0f;
+    private static final float SHORT_REPEL_DISTANCE = RADIUS * 3.0f;
+
+    private static final float ATTRACTION_DISTANCE = RADIUS * 4.0f;
+    private static final float ATTRACTION_DISTANCE_SQUARED = ATTRACTION_DISTANCE * ATTRACTION_DISTANCE;
+
+    /** the average distance a node moves in a tick, below which the layout is settled */
+    public static final float CONVERGED_DISPLACEMENT = 0.01f;
+
+    /** the furthest a node may move in one tick, right after the graph changed */
+    public static final float INITIAL_TEMPERATURE = LONG_REPEL_DISTANCE;
+    /** the least a node may move in one tick, kept apart from the convergence threshold */
+    private static final float MIN_TEMPERATURE = CONVERGED_DISPLACEMENT / 10.0f;
+    private static final float COOLING = Float.parseFloat(System.getProperty("classgraph.layout.cooling", "0.98"));
+
+    private static final String REPULSION = System.getProperty("classgraph.repulsion", "grid");
+    private static final float THETA = Float.parseFloat(System.getProperty("classgraph.theta", String.valueOf(BarnesHutRepulsion.DEFAULT_THETA)));
+    private static final int THREADS = Integer.getInteger("classgraph.layout.threads", Runtime.getRuntime().availableProcessors()).intValue();
+    private static final long SEED = Long.getLong("classgraph.layout.seed", 0L).longValue();
+
+    private ClassNodes classNodes;
+    private ForkJoinPool pool;
+    private long seed;
+    private long tickCount;
+    private float temperature = INITIAL_TEMPERATURE;
+    private BarnesHutRepulsion repulsion;
+    private GridRepulsion gridRepulsion;
+    private ForceChunk[] forceChunks;
+    private ReduceChunk[] reduceChunks;
+    private TickTask tickTask = new TickTask();
+
+    private LayoutPositions positions = new LayoutPositions();
+    private CompactGraph graph;
+    private int nodeCount;
+    private float[] x;
+    private float[] y;
+    private float[] z;
+
+    public ForceLayout(ClassNodes nodes) {
+        this(nodes, THREADS, SEED);
+    }
+
+    public ForceLayout(ClassNodes nodes, int threads, long randomSeed) {
+        classNodes = nodes;
+        seed = randomSeed;
+        if (REPULSION.equals("barneshut")) {
+            repulsion = new BarnesHutRepulsion(THETA, SHORT_REPEL_DISTANCE, LONG_REPEL_DISTANCE);
+        } else {
+            gridRepulsion = new GridRepulsion(SHORT_REPEL_DISTANCE, LONG_REPEL_DISTANCE);
+        }
+        pool = new ForkJoinPool(threads);
+        forceChunks = new ForceChunk[threads];
+        reduceChunks = new ReduceChunk[threads];
+        for (int i = 0; i < threads; ++i) {
+            forceChunks[i] = new ForceChunk();
+            reduceChunks[i] = new ReduceChunk();
+        }
+    }
+
+    /**
+     * moves every node once by the sum of the forces acting on it
+     *
+     * @return the total distance the nodes moved, which falls towards zero as the
+     *         layout settles
+     */
+    public float tick() {
+        return tick(classNodes.getCompactGraph());
+    }
+
+    /**
+     * moves every node of the given graph once, which is the current graph of the class
+     * nodes, or a coarsened copy of it. Positions are indexed by the nodes of the graph.
+     *
+     * @param current
+     * @return the total distance the nodes moved
+     */
+    public float tick(CompactGraph current) {
+        if (current != graph) {
+            graph = current;
+            temperature = INITIAL_TEMPERATURE;
+        }
+        nodeCount = graph.getNodeCount();
+        positions.ensureSize(nodeCount);
+        if (nodeCount == 0) {
+            return 0.0f;
+        }
+
+        x = positions.getX();
+        y = positions.getY();
+        z = positions.getZ();
+
+        if (gridRepulsion != null) {
+            gridRepulsion.build(nodeCount, x, y, z);
+        } else {
+            repulsion.build(nodeCount, x, y, z);
+        }
+
+        int chunks = forceChunks.length;
+        int chunkSize = (nodeCount + chunks - 1) / chunks;
+        for (int c = 0; c < chunks; ++c) {
+            int start = Math.min(c * chunkSize, nodeCount);
+            int end = Math.min(start + chunkSize, nodeCount);
+            forceChunks[c].prepare(start, end, seed ^ ((tickCount * chunks) + c));
+            reduceChunks[c].prepare(start, end);
+        }
+        ++tickCount;
+
+        tickTask.reinitialize();
+        pool.invoke(tickTask);
+
+        float displacement = 0.0f;
+        for (ReduceChunk chunk : reduceChunks) {
+            displacement += chunk.displacement;
+        }
+
+        temperature = Math.max(MIN_TEMPERATURE, temperature * COOLING);
+        return displacement;
+    }
+
+    /**
+     * ticks until the nodes move less than {@link #CONVERGED_DISPLACEMENT} on average,
+     * or until the given number of ticks has run
+     *
+     * @param maxTicks
+     * @return the number of ticks run
+     */
+    public int settle(int maxTicks) {
+        for (int t = 0; t < maxTicks; ++t) {
+            float displacement = tick();
+            if (displacement <= (CONVERGED_DISPLACEMENT * nodeCount)) {
+                return t + 1;
+            }
+        }
+        return maxTicks;
+    }
+
+    /**
+     * ticks the given graph like {@link #settle(int)}, but starting from the given
+     * temperature, so that positions that are already roughly right are only refined
+     *
+     * @param current
+     * @param maxTicks
+     * @param startTemperature
+     * @return the number of ticks run
+     */
+    public int settle(CompactGraph current, int maxTicks, float startTemperature) {
+        graph = current;
+        temperature = startTemperature;
+        for (int t = 0; t < maxTicks; ++t) {
+            float displacement = tick(current);
+            if (displacement <= (CONVERGED_DISPLACEMENT * nodeCount)) {
+                return t + 1;
+            }
+        }
+        return maxTicks;
+    }
+
+    public CompactGraph getGraph() {
+        return graph;
+    }
+
+    public void terminate() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * @return the seed the random sources of the layout are derived from
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    public LayoutPositions getPositions() {
+        return positions;
+    }
+
+    /**
+     * runs all force chunks, and once they are all done, all reduce chunks
+     */
+    private class TickTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void compute() {
+            invokeAll(forceChunks);
+            invokeAll(reduceChunks);
+        }
+    }
+
+    /**
+     * computes the forces on one range of nodes into its own buffer
+     */
+    private class ForceChunk extends RecursiveAction implements BarnesHutRepulsion.Relations {
+
+        private static final long serialVersionUID = 1L;
+
+        private int start;
+        private int end;
+        private float[] dx = new float[0];
+        private float[] dy = new float[0];
+        private float[] dz = new float[0];
+        private int[] stack = new int[BarnesHutRepulsion.stackSize()];
+        private transient LayoutRandom random = new LayoutRandom(0L);
+
+        void prepare(int startIndex, int endIndex, long randomSeed) {
+            start = startIndex;
+            end = endIndex;
+            random.reseed(randomSeed);
+
+            if (dx.length < nodeCount) {
+                int capacity = x.length;
+                dx = new float[capacity];
+                dy = new float[capacity];
+                dz = new float[capacity];
+            } else {
+                Arrays.fill(dx, 0, nodeCount, 0.0f);
+                Arrays.fill(dy, 0, nodeCount, 0.0f);
+                Arrays.fill(dz, 0, nodeCount, 0.0f);
+            }
+
+            reinitialize();
+        }
+
+        @Override
+        protected void compute() {
+            if (gridRepulsion != null) {
+                for (int i = start; i < end; ++i) {
+                    gridRepulsion.accumulate(i, this, dx, dy, dz, random);
+                }
+            } else {
+                for (int i = start; i < end; ++i) {
+                    repulsion.accumulate(i, this, dx, dy, dz, stack, random);
+                }
+            }
+
+            // every relationship is stored in both rows, so only take it from the lower index
+            int[] offsets = graph.getOffsets();
+            int[] targets = graph.getTargets();
+            float[] weights = graph.getWeights();
+            for (int i = start; i < end; ++i) {
+                for (int k = offsets[i]; k < offsets[i + 1]; ++k) {
+                    int j = targets[k];
+                    if (j > i) {
+                        attract(i, j, weights[k]);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public boolean isRelated(int body1, int body2) {
+            return graph.isAdjacent(body1, body2);
+        }
+
+        private void attract(int node1, int node2, float attraction) {
+            if (attraction == 0.0f) {
+                return;
+            }
+
+            float distanceSq = VectorMath.distanceSquared(x[node1], y[node1], z[node1], x[node2], y[node2], z[node2]);
+            if (distanceSq <= ATTRACTION_DISTANCE_SQUARED) {
+                return;
+            }
+
+            float scale = attraction / (float) Math.sqrt(distanceSq);
+            float ux = (x[node2] - x[node1]) * scale;
+            float uy = (y[node2] - y[node1]) * scale;
+            float uz = (z[node2] - z[node1]) * scale;
+
+            dx[node1] += ux;
+            dy[node1] += uy;
+            dz[node1] += uz;
+            dx[node2] -= ux;
+            dy[node2] -= uy;
+            dz[node2] -= uz;
+        }
+    }
+
+    /**
+     * sums the chunk buffers for one range of nodes, always in chunk order, moves the
+     * nodes no further than the temperature, and totals how far they went
+     */
+    private class ReduceChunk extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private int start;
+        private int end;
+        private float displacement;
+
+        void prepare(int startIndex, int endIndex) {
+            start = startIndex;
+            end = endIndex;
+            reinitialize();
+        }
+
+        @Override
+        protected void compute() {
+            float moved = 0.0f;
+            for (int i = start; i < end; ++i) {
+                float sx = 0.0f, sy = 0.0f, sz = 0.0f;
+                for (ForceChunk chunk : forceChunks) {
+                    sx += chunk.dx[i];
+                    sy += chunk.dy[i];
+                    sz += chunk.dz[i];
+                }
+
+                float length = VectorMath.length(sx, sy, sz);
+                if (length > temperature) {
+                    float scale = temperature / length;
+                    sx *= scale;
+                    sy *= scale;
+                    sz *= scale;
+                    length = temperature;
+                }
+
+                x[i] += sx;
+                y[i] += sy;
+                z[i] += sz;
+                moved += length;
+            }
+            displacement = moved;
+        }
+    }
+}
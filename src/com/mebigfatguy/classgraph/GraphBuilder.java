@@ -17,33 +17,67 @@
  */
 package com.mebigfatguy.classgraph;
 
-import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileFilter;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLClassLoader;
-import java.security.AccessController;
-import java.security.PrivilegedAction;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.jar.JarInputStream;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.ZipEntry;
 
-import org.objectweb.asm.ClassReader;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * parses the classpath roots into class nodes with a two stage pipeline. Reader threads
+ * walk the jars and directories, and a pool of parser threads, one per core, runs each
+ * class through a {@link ClassParser}, at the {@link ExtractionLevel} given by
+ * -Dclassgraph.extract. A bounded queue between the stages makes the
+ * readers wait when the parsers fall behind. Directory classes are read by the reader
+ * threads, while jar entries are queued straight from the central directory, and read
+ * and inflated by the parsers, so that even a single jar keeps every core busy. Roots
+ * that haven't changed since the last run are replayed from the {@link GraphCache}
+ * instead of being parsed. With -Dclassgraph.watch=true, class directories are watched
+ * for recompiled classes after the build. Each parser thread buffers the relationships
+ * it finds in an {@link EdgeBuffer}, and merges them into the nodes in batches, except
+ * when watching, where relationships are tracked per class file. Batches are also
+ * merged every -Dclassgraph.parse.flush milliseconds, and whenever a parser runs out of
+ * classes, so that the display sees the relationships of small roots without waiting
+ * for the build to end. Progress is counted in {@link BuildMetrics},
+ * which is registered with JMX and logged periodically while the build runs. A builder
+ * can also start from a {@link GraphFile} instead, in which case nothing is parsed, and
+ * the classpath is only used to find the types of classes.
+ */
 public class GraphBuilder {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(GraphBuilder.class);
 
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final double PARSE_RATE = Double.parseDouble(System.getProperty("classgraph.parse.rate", "0"));
+    private static final boolean WATCH = Boolean.getBoolean("classgraph.watch");
+    private static final int EDGE_BATCH = Integer.getInteger("classgraph.parse.batch", 4096).intValue();
+    private static final long FLUSH_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("classgraph.parse.flush", 250L).longValue());
+    private static final long METRICS_INTERVAL = Long.getLong("classgraph.metrics.interval", 5L).longValue();
+    private static final String METRICS_NAME = "com.mebigfatguy.classgraph:type=GraphBuilder";
+
+    private static final PendingClass END_OF_CLASSES = new LoadedClass(null, new byte[0], null, null);
+
     private static final FileFilter CLASS_FILTER = new FileFilter() {
         @Override
         public boolean accept(File path) {
@@ -55,72 +89,269 @@ public class GraphBuilder {
         }
     };
 
-    private ExecutorService executor;
+    private ExecutorService readers;
+    private ExecutorService parsers;
+    private int parserCount;
+    private BlockingQueue<PendingClass> classQueue;
+    private RateLimiter rateLimiter;
+    private AtomicInteger runningParsers;
+    private BuildMetrics metrics;
+    private ObjectName metricsName;
+    private ScheduledExecutorService metricsLogger;
+    private CompletableFuture<BuildMetrics> completion = new CompletableFuture<>();
+    private ClassParser parser;
+    private GraphCache cache;
+    private ClassDirectoryWatcher watcher;
     private Set<File> classPath;
     private ClassNodes nodes;
+    private boolean fromSavedGraph;
 
     public GraphBuilder(final Set<File> clsPath) {
+        this(clsPath, null);
+    }
 
-        try {
-            ClassFinderLoader loader = new ClassFinderLoader(clsPath);
-            nodes = new ClassNodes(loader);
+    /**
+     * @param clsPath
+     * @param saved
+     *            a saved graph to start from instead of parsing, or null to parse the
+     *            classpath
+     */
+    public GraphBuilder(final Set<File> clsPath, GraphFile saved) {
+
+        IndexedClassFinder finder = new IndexedClassFinder(clsPath);
+        nodes = (saved == null) ? new ClassNodes(finder) : new ClassNodes(finder, saved);
+        fromSavedGraph = saved != null;
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        readers = Executors.newFixedThreadPool(Math.max(1, Math.min(clsPath.size(), processors)));
+        parserCount = processors;
+        parsers = Executors.newFixedThreadPool(parserCount);
+        classQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        runningParsers = new AtomicInteger(parserCount);
+        metrics = new BuildMetrics(classQueue);
+        parser = new ClassParser(ExtractionLevel.fromSystemProperties(), nodes.getNameTable());
+        // a saved graph would otherwise replace the cache with an empty one
+        if (!fromSavedGraph) {
+            cache = GraphCache.fromSystemProperties(parser.getLevel());
+        }
+        if (PARSE_RATE > 0.0) {
+            rateLimiter = new RateLimiter(PARSE_RATE);
+        }
+        classPath = clsPath;
 
-            executor = Executors.newFixedThreadPool(3 * Runtime.getRuntime().availableProcessors());
-            classPath = clsPath;
-        } catch (MalformedURLException e) {
-            throw new IllegalArgumentException("Invalid URL while loading classes", e);
+        if (WATCH && fromSavedGraph) {
+            LOGGER.warn("Class directories aren't watched when starting from a saved graph");
+        } else if (WATCH) {
+            try {
+                watcher = new ClassDirectoryWatcher(nodes, parser);
+            } catch (IOException e) {
+                LOGGER.error("Failed creating a directory watcher, class directories won't be watched", e);
+            }
         }
     }
 
     public void build() {
+        metrics.started();
+        registerMetrics();
+        if (METRICS_INTERVAL > 0) {
+            metricsLogger = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "classgraph-metrics");
+                t.setDaemon(true);
+                return t;
+            });
+            metricsLogger.scheduleAtFixedRate(() -> LOGGER.info("Build progress: {}", metrics.summary()), METRICS_INTERVAL, METRICS_INTERVAL, TimeUnit.SECONDS);
+        }
+
+        for (int i = 0; i < parserCount; ++i) {
+            parsers.submit(new Runnable() {
+                @Override
+                public void run() {
+                    parseClasses();
+                }
+            });
+        }
+
+        if (classPath.isEmpty() || fromSavedGraph) {
+            endParsing();
+            return;
+        }
+
+        if (cache != null) {
+            cache.load(nodes.getNameTable());
+        }
+
+        if (watcher != null) {
+            for (File f : classPath) {
+                if (f.isDirectory()) {
+                    try {
+                        watcher.register(f);
+                    } catch (IOException e) {
+                        LOGGER.error("Failed watching directory {}", f, e);
+                    }
+                }
+            }
+        }
+
+        final AtomicInteger pendingRoots = new AtomicInteger(classPath.size());
         for (final File f : classPath) {
-            executor.submit(new Runnable() {
+            readers.submit(new Runnable() {
                 @Override
                 public void run() {
-                    if (f.isFile()) {
-                        parseJar(f);
-                    } else {
-                        parseDirectory(f);
+                    try {
+                        readRoot(f);
+                    } catch (InterruptedException ie) {
+                        LOGGER.info("Reading {} interrupted", f);
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        if (pendingRoots.decrementAndGet() == 0) {
+                            endParsing();
+                        }
                     }
                 }
             });
         }
     }
 
+    /**
+     * stops the build, if still running, which cancels the completion, so that nobody
+     * waits for it forever
+     */
     public void terminate() {
-        executor.shutdownNow();
+        completion.cancel(false);
+        readers.shutdownNow();
+        parsers.shutdownNow();
+        if (metricsLogger != null) {
+            metricsLogger.shutdownNow();
+        }
+        unregisterMetrics();
+        if (watcher != null) {
+            watcher.terminate();
+        }
     }
 
     public ClassNodes getNodes() {
         return nodes;
     }
 
-    private void parseJar(File f) {
+    public BuildMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return a future that completes with the final metrics once every class of every
+     *         root is parsed, or is cancelled if the builder is terminated first
+     */
+    public CompletableFuture<BuildMetrics> getCompletion() {
+        return completion;
+    }
+
+    /**
+     * adds a listener that is called on a parser thread when the build completes, or
+     * right away if it already has
+     *
+     * @param l
+     */
+    public void addBuildListener(final BuildListener l) {
+        completion.thenAccept(l::buildCompleted);
+    }
+
+    /**
+     * waits until every class of every root is parsed
+     *
+     * @throws InterruptedException
+     * @throws java.util.concurrent.CancellationException
+     *             if the builder was terminated before the build completed
+     */
+    public void awaitCompletion() throws InterruptedException {
         try {
-            ZipEntry ze = null;
-            try (JarInputStream jis = new JarInputStream(new BufferedInputStream(new FileInputStream(f)))) {
-                ClassGraphBuildingVisitor visitor = new ClassGraphBuildingVisitor(nodes);
-
-                while ((ze = jis.getNextEntry()) != null) {
-                    final String clsName = ze.getName();
-                    if (clsName.endsWith(".class")) {
-                        LOGGER.info("Parsing class {}", clsName);
-
-                        Thread.sleep(100);
-                        ClassReader cr = new ClassReader(jis);
-                        cr.accept(visitor, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
-                    }
+            completion.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Graph build failed", e.getCause());
+        }
+    }
+
+    private void registerMetrics() {
+        try {
+            ObjectName name = new ObjectName(METRICS_NAME);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+            metricsName = name;
+        } catch (JMException e) {
+            LOGGER.warn("Failed registering build metrics as {}", METRICS_NAME, e);
+        }
+    }
+
+    private void unregisterMetrics() {
+        if (metricsName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsName);
+            } catch (JMException e) {
+                LOGGER.warn("Failed unregistering build metrics {}", metricsName, e);
+            }
+            metricsName = null;
+        }
+    }
+
+    private void readRoot(File f) throws InterruptedException {
+        RootProgress progress = new RootProgress();
+        try {
+            readRoot(f, progress);
+        } catch (InterruptedException ie) {
+            progress.failed();
+            throw ie;
+        } finally {
+            progress.release();
+        }
+    }
+
+    private void readRoot(File f, RootProgress progress) throws InterruptedException {
+        RelationshipSink sink = nodes;
+
+        // watched directories track relationships per class file, which the cache doesn't keep
+        if ((cache != null) && ((watcher == null) || f.isFile())) {
+            try {
+                GraphCache.CacheKey key = GraphCache.keyOf(f);
+                RecordedEdges cachedEdges = cache.lookup(f, key);
+                if (cachedEdges != null) {
+                    LOGGER.info("Loading {} from the graph cache", f);
+                    cachedEdges.replay(nodes);
+                    progress.fromCache = true;
+                    return;
                 }
+
+                RecordedEdges recordedEdges = new RecordedEdges(nodes);
+                progress.cacheOnSuccess(f, key, recordedEdges);
+                sink = recordedEdges;
             } catch (IOException e) {
-                LOGGER.error("Failed parsing zip entry {} from file {}", ze, f, e);
+                LOGGER.warn("Failed computing the cache key of {}, parsing it uncached", f, e);
             }
-        } catch (InterruptedException ie) {
-            LOGGER.info("Jar {} Parsing interrupted", f);
+        }
+
+        if (f.isFile()) {
+            readJar(f, sink, progress);
+        } else {
+            readDirectory(f, sink, progress);
+        }
+    }
+
+    private void readJar(File f, RelationshipSink sink, RootProgress progress) throws InterruptedException {
+        JarSource jar;
+        try {
+            jar = new JarSource(f);
+        } catch (IOException e) {
+            LOGGER.error("Failed opening jar file {}", f, e);
+            progress.failed();
+            return;
+        }
+
+        // closed by the progress once the reader and every queued entry are done with it
+        progress.jar = jar;
+        for (ZipEntry ze : jar.getClassEntries()) {
+            LOGGER.debug("Queueing class {}", ze.getName());
+            enqueue(new JarEntryClass(jar, ze, sink, progress));
         }
     }
 
-    private void parseDirectory(File d) {
-        ClassGraphBuildingVisitor visitor = new ClassGraphBuildingVisitor(nodes);
+    private void readDirectory(File d, RelationshipSink sink, RootProgress progress) throws InterruptedException {
         List<File> stack = new ArrayList<>();
         stack.add(d);
 
@@ -134,46 +365,250 @@ public class GraphBuilder {
                     }
                 }
             } else {
-                try (final InputStream is = new BufferedInputStream(new FileInputStream(f))) {
-                    ClassReader cr = new ClassReader(is);
-                    cr.accept(visitor, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+                try {
+                    RelationshipSink classSink = (watcher != null) ? watcher.track(f) : sink;
+                    enqueue(new LoadedClass(f, Files.readAllBytes(f.toPath()), classSink, progress));
                 } catch (IOException e) {
-                    LOGGER.error("Failed parsing class file {}", f, e);
+                    LOGGER.error("Failed reading class file {}", f, e);
+                    progress.failed();
                 }
             }
         }
     }
 
-    private static class ClassFinderLoader extends URLClassLoader implements ClassFinder {
+    private void enqueue(PendingClass pendingClass) throws InterruptedException {
+        if (rateLimiter != null) {
+            rateLimiter.acquire();
+        }
+        pendingClass.getProgress().retain();
+        try {
+            classQueue.put(pendingClass);
+        } catch (InterruptedException ie) {
+            pendingClass.getProgress().release();
+            throw ie;
+        }
+    }
 
-        public ClassFinderLoader(Set<File> clsPath) throws MalformedURLException {
-            super(toURLs(clsPath));
+    /**
+     * tells every parser thread that no more classes are coming, once the classes ahead
+     * of that are parsed
+     */
+    private void endParsing() {
+        try {
+            for (int i = 0; i < parserCount; ++i) {
+                classQueue.put(END_OF_CLASSES);
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
         }
+    }
+
+    private void parseClasses() {
+        Map<RelationshipSink, EdgeBuffer> buffers = new IdentityHashMap<>();
+        boolean batched = (EDGE_BATCH > 0) && (watcher == null);
+        long lastFlush = System.nanoTime();
+        try {
+            while (true) {
+                PendingClass pendingClass = classQueue.poll();
+                if (pendingClass == null) {
+                    // don't hold back what was found while waiting for more classes
+                    flush(buffers);
+                    lastFlush = System.nanoTime();
+                    pendingClass = classQueue.take();
+                }
+
+                if (pendingClass == END_OF_CLASSES) {
+                    flush(buffers);
+                    if (runningParsers.decrementAndGet() == 0) {
+                        parsingCompleted();
+                    }
+                    return;
+                }
 
-        private static URL[] toURLs(Set<File> clsPath) throws MalformedURLException {
-            List<URL> urls = new ArrayList<>(clsPath.size());
+                try {
+                    RelationshipSink sink = pendingClass.getSink();
+                    if (batched) {
+                        sink = buffers.computeIfAbsent(sink, target -> new EdgeBuffer(target, EDGE_BATCH, nodes.getNameTable()));
+                    }
+                    byte[] bytes = pendingClass.getBytes();
+                    parser.parse(bytes, sink);
+                    metrics.classParsed(bytes.length);
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.error("Failed parsing class {}", pendingClass, e);
+                    metrics.parseFailed();
+                    pendingClass.getProgress().failed();
+                } finally {
+                    pendingClass.getProgress().release();
+                }
 
-            for (File path : clsPath) {
-                urls.add(path.toURI().toURL());
+                if (!buffers.isEmpty() && ((System.nanoTime() - lastFlush) >= FLUSH_NANOS)) {
+                    flush(buffers);
+                    lastFlush = System.nanoTime();
+                }
             }
+        } catch (InterruptedException ie) {
+            LOGGER.info("Class parsing interrupted");
+        }
+    }
 
-            return urls.toArray(new URL[urls.size()]);
+    /**
+     * flushes and drops the buffers, so that buffers of roots that are done don't linger
+     */
+    private static void flush(Map<RelationshipSink, EdgeBuffer> buffers) {
+        for (EdgeBuffer buffer : buffers.values()) {
+            buffer.flush();
         }
+        buffers.clear();
+    }
 
-        @Override
-        public ClassType classStatus(String clsName) {
-            if (clsName.startsWith("java.") || clsName.startsWith("javax.")) {
-                return (clsName.equals("java.lang.Object")) ? ClassType.OBJECT_CLASS : ClassType.SYSTEM_CLASS;
-            }
+    /**
+     * called on the last parser thread, once every class of every root is parsed
+     */
+    private void parsingCompleted() {
+        metrics.completed();
+        parser.parsingCompleted();
+        if (metricsLogger != null) {
+            metricsLogger.shutdown();
+        }
+        LOGGER.info("Parsing completed, {} classes found", Integer.valueOf(nodes.size()));
+        LOGGER.info("Build metrics: {}", metrics.summary());
+        if (cache != null) {
+            cache.save();
+        }
+        completion.complete(metrics);
+        if (watcher != null) {
+            watcher.start();
+        }
+    }
+
+    /**
+     * a class waiting in the queue, whose bytes may or may not have been read yet
+     */
+    private interface PendingClass {
+        byte[] getBytes() throws IOException;
+
+        RelationshipSink getSink();
+
+        RootProgress getProgress();
+    }
 
-            String clsResourceName = clsName.replaceAll("\\.", "/") + ".class";
+    /**
+     * counts the classes of one root that are queued or still being parsed, plus one for
+     * the reader, and records the latency of the root when the last of them is done. The
+     * jar of the root, if any, is closed then, so that entries still queued when the
+     * reader is interrupted can still be read. The relationships recorded for the cache
+     * are only stored in it then, and only if every class was read and parsed, so that a
+     * broken or interrupted root isn't replayed from the cache in later runs.
+     */
+    private class RootProgress {
 
-            URL u = getResource(clsResourceName);
-            if (u != null) {
-                return ClassType.APPLICATION_CLASS;
+        private long startTime = System.nanoTime();
+        private AtomicInteger pending = new AtomicInteger(1);
+        private volatile boolean fromCache;
+        private volatile boolean failed;
+        private volatile JarSource jar;
+        private volatile File cacheRoot;
+        private volatile GraphCache.CacheKey cacheKey;
+        private volatile RecordedEdges cacheEdges;
+
+        void retain() {
+            pending.incrementAndGet();
+        }
+
+        void failed() {
+            failed = true;
+        }
+
+        void cacheOnSuccess(File root, GraphCache.CacheKey key, RecordedEdges edges) {
+            cacheRoot = root;
+            cacheKey = key;
+            cacheEdges = edges;
+        }
+
+        void release() {
+            if (pending.decrementAndGet() == 0) {
+                if (jar != null) {
+                    jar.close();
+                }
+                if (cacheEdges != null) {
+                    if (failed) {
+                        LOGGER.info("Not caching {}, as not all of its classes were parsed", cacheRoot);
+                    } else {
+                        cache.store(cacheRoot, cacheKey, cacheEdges);
+                    }
+                }
+                metrics.rootCompleted(System.nanoTime() - startTime, fromCache);
             }
+        }
+    }
+
+    private static class LoadedClass implements PendingClass {
+
+        private File classFile;
+        private byte[] classBytes;
+        private RelationshipSink sink;
+        private RootProgress progress;
+
+        LoadedClass(File f, byte[] bytes, RelationshipSink relationshipSink, RootProgress rootProgress) {
+            classFile = f;
+            classBytes = bytes;
+            sink = relationshipSink;
+            progress = rootProgress;
+        }
+
+        @Override
+        public byte[] getBytes() {
+            return classBytes;
+        }
+
+        @Override
+        public RelationshipSink getSink() {
+            return sink;
+        }
 
-            return ClassType.UNKNOWN_CLASS;
+        @Override
+        public RootProgress getProgress() {
+            return progress;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(classFile);
+        }
+    }
+
+    private static class JarEntryClass implements PendingClass {
+
+        private JarSource jar;
+        private ZipEntry entry;
+        private RelationshipSink sink;
+        private RootProgress progress;
+
+        JarEntryClass(JarSource jarSource, ZipEntry zipEntry, RelationshipSink relationshipSink, RootProgress rootProgress) {
+            jar = jarSource;
+            entry = zipEntry;
+            sink = relationshipSink;
+            progress = rootProgress;
+        }
+
+        @Override
+        public byte[] getBytes() throws IOException {
+            return jar.read(entry);
+        }
+
+        @Override
+        public RelationshipSink getSink() {
+            return sink;
+        }
+
+        @Override
+        public RootProgress getProgress() {
+            return progress;
+        }
+
+        @Override
+        public String toString() {
+            return entry.getName() + " in " + jar.getFile();
         }
     }
 }
@@ -0,0 +1,337 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * an on disk cache of the relationships found in each classpath root. A root is keyed
+ * by its path, size, modification time and content checksum; for directories, the size,
+ * time and checksum cover the paths, sizes and times of the class files below it.
+ * Roots whose key still matches are replayed from the cache instead of being parsed.
+ * Only the roots of the current run are written back. A cache written at a different
+ * extraction level is ignored.
+ */
+public class GraphCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GraphCache.class);
+
+    private static final int MAGIC = 0x43474331;
+    private static final int VERSION = 3;
+    private static final long MAX_MAPPING = 1L << 30;
+
+    private static final FileFilter CLASS_FILTER = new FileFilter() {
+        @Override
+        public boolean accept(File path) {
+            return path.isDirectory() || path.getName().endsWith(".class");
+        }
+    };
+
+    private File cacheFile;
+    private ExtractionLevel level;
+    private Map<String, CachedRoot> loadedRoots = new HashMap<>();
+    private Map<String, CachedRoot> currentRoots = new ConcurrentHashMap<>();
+
+    public GraphCache(File file, ExtractionLevel extractionLevel) {
+        cacheFile = file;
+        level = extractionLevel;
+    }
+
+    /**
+     * @param extractionLevel
+     * @return the cache named by the classgraph.cache system property, by default
+     *         ~/.classgraph/graph.cache, or null if the property is set to be empty
+     */
+    public static GraphCache fromSystemProperties(ExtractionLevel extractionLevel) {
+        String path = System.getProperty("classgraph.cache", System.getProperty("user.home") + File.separator + ".classgraph" + File.separator + "graph.cache");
+        if (path.isEmpty()) {
+            return null;
+        }
+
+        return new GraphCache(new File(path), extractionLevel);
+    }
+
+    /**
+     * reads the cache file, if there is one. A missing, old or damaged file just makes
+     * for an empty cache.
+     *
+     * @param nameTable
+     *            the table the class names read are interned in
+     */
+    public void load(ClassNameTable nameTable) {
+        if (!cacheFile.isFile()) {
+            return;
+        }
+
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile.toPath())))) {
+            if ((dis.readInt() != MAGIC) || (dis.readInt() != VERSION)) {
+                LOGGER.info("Ignoring graph cache {} from a different version", cacheFile);
+                return;
+            }
+
+            if (dis.readInt() != level.ordinal()) {
+                LOGGER.info("Ignoring graph cache {} from a different extraction level", cacheFile);
+                return;
+            }
+
+            RelationshipType[] types = RelationshipType.values();
+            int rootCount = dis.readInt();
+            for (int r = 0; r < rootCount; ++r) {
+                String path = dis.readUTF();
+                CacheKey key = new CacheKey(dis.readLong(), dis.readLong(), dis.readLong());
+
+                String[] names = new String[dis.readInt()];
+                for (int n = 0; n < names.length; ++n) {
+                    names[n] = nameTable.intern(dis.readUTF());
+                }
+
+                RecordedEdges edges = new RecordedEdges();
+                int edgeCount = dis.readInt();
+                for (int e = 0; e < edgeCount; ++e) {
+                    edges.addRelationship(names[dis.readInt()], names[dis.readInt()], types[dis.readByte()]);
+                }
+
+                loadedRoots.put(path, new CachedRoot(key, edges));
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Failed reading graph cache {}, ignoring it", cacheFile, e);
+            loadedRoots.clear();
+        }
+    }
+
+    /**
+     * returns the cached relationships of a root whose key hasn't changed, and keeps
+     * them to be written back
+     *
+     * @param root
+     * @param key
+     * @return the cached relationships, or null if there are none or the root changed
+     */
+    public RecordedEdges lookup(File root, CacheKey key) {
+        String path = root.getAbsolutePath();
+        CachedRoot cached = loadedRoots.get(path);
+        if ((cached == null) || !cached.key.equals(key)) {
+            return null;
+        }
+
+        currentRoots.put(path, cached);
+        return cached.edges;
+    }
+
+    /**
+     * records the relationships of a root whose classes were all parsed, to be written by
+     * save. Batched edges may still be filling up until save is called.
+     *
+     * @param root
+     * @param key
+     * @param edges
+     */
+    public void store(File root, CacheKey key, RecordedEdges edges) {
+        currentRoots.put(root.getAbsolutePath(), new CachedRoot(key, edges));
+    }
+
+    /**
+     * writes the roots looked up or stored in this run to the cache file
+     */
+    public void save() {
+        try {
+            File dir = cacheFile.getAbsoluteFile().getParentFile();
+            if (dir != null) {
+                Files.createDirectories(dir.toPath());
+            }
+
+            File tmpFile = new File(cacheFile.getPath() + ".tmp");
+            try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile.toPath())))) {
+                dos.writeInt(MAGIC);
+                dos.writeInt(VERSION);
+                dos.writeInt(level.ordinal());
+
+                List<Map.Entry<String, CachedRoot>> roots = new ArrayList<>(currentRoots.entrySet());
+                dos.writeInt(roots.size());
+                for (Map.Entry<String, CachedRoot> root : roots) {
+                    dos.writeUTF(root.getKey());
+                    CacheKey key = root.getValue().key;
+                    dos.writeLong(key.size);
+                    dos.writeLong(key.modified);
+                    dos.writeLong(key.checksum);
+                    writeEdges(dos, root.getValue().edges);
+                }
+            }
+
+            Files.move(tmpFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("Failed writing graph cache {}", cacheFile, e);
+        }
+    }
+
+    private static void writeEdges(DataOutputStream dos, RecordedEdges edges) throws IOException {
+        int edgeCount = edges.size();
+        Map<String, Integer> nameIds = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        int[] ids = new int[edgeCount * 2];
+
+        for (int e = 0; e < edgeCount; ++e) {
+            ids[2 * e] = nameId(edges.getFrom(e), nameIds, names);
+            ids[(2 * e) + 1] = nameId(edges.getTo(e), nameIds, names);
+        }
+
+        dos.writeInt(names.size());
+        for (String name : names) {
+            dos.writeUTF(name);
+        }
+
+        dos.writeInt(edgeCount);
+        for (int e = 0; e < edgeCount; ++e) {
+            dos.writeInt(ids[2 * e]);
+            dos.writeInt(ids[(2 * e) + 1]);
+            dos.writeByte(edges.getType(e).ordinal());
+        }
+    }
+
+    private static int nameId(String name, Map<String, Integer> nameIds, List<String> names) {
+        Integer id = nameIds.get(name);
+        if (id == null) {
+            id = Integer.valueOf(names.size());
+            nameIds.put(name, id);
+            names.add(name);
+        }
+        return id.intValue();
+    }
+
+    /**
+     * computes the key of a jar or class directory as it is on disk now
+     *
+     * @param root
+     * @return
+     * @throws IOException
+     */
+    public static CacheKey keyOf(File root) throws IOException {
+        if (root.isFile()) {
+            return new CacheKey(root.length(), root.lastModified(), checksum(root));
+        }
+
+        List<File> classFiles = new ArrayList<>();
+        List<File> stack = new ArrayList<>();
+        stack.add(root);
+        while (!stack.isEmpty()) {
+            File f = stack.remove(stack.size() - 1);
+            if (f.isDirectory()) {
+                File[] children = f.listFiles(CLASS_FILTER);
+                if (children != null) {
+                    stack.addAll(Arrays.asList(children));
+                }
+            } else {
+                classFiles.add(f);
+            }
+        }
+
+        classFiles.sort(null);
+
+        long size = 0;
+        long modified = 0;
+        CRC32C crc = new CRC32C();
+        for (File f : classFiles) {
+            size += f.length();
+            modified = Math.max(modified, f.lastModified());
+            crc.update(f.getPath().getBytes(StandardCharsets.UTF_8));
+            crc.update(Long.toString(f.length()).getBytes(StandardCharsets.UTF_8));
+            crc.update(Long.toString(f.lastModified()).getBytes(StandardCharsets.UTF_8));
+        }
+
+        return new CacheKey(size, modified, crc.getValue());
+    }
+
+    private static long checksum(File f) throws IOException {
+        CRC32C crc = new CRC32C();
+        try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += MAX_MAPPING) {
+                MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAX_MAPPING, size - position));
+                crc.update(mapping);
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * what a classpath root looked like on disk when it was cached
+     */
+    public static class CacheKey {
+
+        private long size;
+        private long modified;
+        private long checksum;
+
+        public CacheKey(long rootSize, long lastModified, long rootChecksum) {
+            size = rootSize;
+            modified = lastModified;
+            checksum = rootChecksum;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) {
+                return true;
+            }
+
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+
+            CacheKey that = (CacheKey) o;
+            return (size == that.size) && (modified == that.modified) && (checksum == that.checksum);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(size) ^ Long.hashCode(modified) ^ Long.hashCode(checksum);
+        }
+    }
+
+    private static class CachedRoot {
+        CacheKey key;
+        RecordedEdges edges;
+
+        CachedRoot(CacheKey rootKey, RecordedEdges rootEdges) {
+            key = rootKey;
+            edges = rootEdges;
+        }
+    }
+}
@@ -24,7 +24,8 @@ import java.awt.GraphicsEnvironment;
 import java.awt.Rectangle;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,6 +35,8 @@ import com.jogamp.newt.NewtFactory;
 import com.jogamp.newt.Screen;
 import com.jogamp.newt.event.KeyAdapter;
 import com.jogamp.newt.event.KeyEvent;
+import com.jogamp.newt.event.MouseAdapter;
+import com.jogamp.newt.event.MouseEvent;
 import com.jogamp.newt.event.WindowAdapter;
 import com.jogamp.newt.event.WindowEvent;
 import com.jogamp.newt.opengl.GLWindow;
@@ -46,7 +49,6 @@ import com.jogamp.opengl.GLProfile;
 import com.jogamp.opengl.fixedfunc.GLLightingFunc;
 import com.jogamp.opengl.fixedfunc.GLMatrixFunc;
 import com.jogamp.opengl.glu.GLU;
-import com.jogamp.opengl.glu.GLUquadric;
 import com.jogamp.opengl.util.Animator;
 import com.jogamp.opengl.util.AnimatorBase;
 import com.jogamp.opengl.util.awt.TextRenderer;
@@ -57,38 +59,59 @@ public class GraphDisplay {
 
     private static final int FONT_SIZE = 6;
 
-    private static final float RADIUS = 6.378f;
-    private static final int SLICES = 12;
-    private static final int STACKS = 12;
+    private static final float RADIUS = ForceLayout.RADIUS;
+    private static final String RENDERER = System.getProperty("classgraph.renderer", "sprites");
+    private static final String VIEW = System.getProperty("classgraph.view", "packages");
 
-    private static final float LONG_REPEL_DISTANCE = RADIUS * 8.0f;
-    private static final float LONG_REPEL_DISTANCE_SQUARED = LONG_REPEL_DISTANCE * LONG_REPEL_DISTANCE;
+    private static final float FIELD_OF_VIEW = 45.0f;
+    private static final float NEAR_PLANE = 1.0f;
+    private static final float FAR_PLANE = 1000.0f;
 
-    private static final float SHORT_REPEL_DISTANCE = RADIUS * 3.0f;
-    private static final float SHORT_REPEL_DISTANCE_SQUARED = SHORT_REPEL_DISTANCE * SHORT_REPEL_DISTANCE;
+    private static final int MAX_LABELS = Integer.getInteger("classgraph.labels.max", 300).intValue();
+    private static final float MIN_LABEL_PIXELS = 6.0f;
+    private static final float LABEL_OFFSET = 20.0f;
 
-    private static final float ATTRACTION_DISTANCE = RADIUS * 4.0f;
-    private static final float ATTRACTION_DISTANCE_SQUARED = ATTRACTION_DISTANCE * ATTRACTION_DISTANCE;
-
-    private static final float[] ORIGIN = { 0.0f, 0.0f, 0.0f };
     private static final float STEP_SIZE = 10.0f;
     private static final float ROTATION_SIZE = (float) (Math.PI / 180.0f);
+    private static final float FLY_DISTANCE = RADIUS * 20.0f;
+    private static final float FLY_RATE = 0.15f;
 
     private static final float[] AMBIENT = { 0.7f, 0.7f, 0.7f, 1 };
     private static final float[] SPECULAR = { 0.5f, 0.5f, 0.5f, 1 };
     private static final float[] DIFFUSE = { 1, 1, 1, 1 };
     private static final float[] LIGHT_POSITION = { 0, 3000, 2000, 1 };
 
-    private ClassNodes classNodes;
     private Animator animator;
     private TextRenderer textRenderer;
     private Thread modifier;
     private GLWindow glWindow;
-    private float[] eyeLocation = { 0, 0, 500 };
     private List<TerminationListener> listeners;
+    private ForceLayout layout;
+    private PositionSnapshots snapshots;
+    private ClassNodes classNodes;
+    private PackageView packageView;
+    private ClassNameIndex nameIndex;
+    private LayoutPositions startPositions;
+    private GDEvents events;
+    // input is handed to the render thread, which owns the camera and the shown positions
+    private Queue<Runnable> inputActions = new ConcurrentLinkedQueue<>();
 
     public GraphDisplay(ClassNodes nodes) {
+        this(nodes, null);
+    }
+
+    /**
+     * @param nodes
+     * @param positions
+     *            saved positions of the classes to start the layout from, or null
+     */
+    public GraphDisplay(ClassNodes nodes, LayoutPositions positions) {
         classNodes = nodes;
+        startPositions = positions;
+        layout = new ForceLayout(nodes);
+        snapshots = new PositionSnapshots(RADIUS * 2.0f);
+        packageView = new PackageView(nodes, !VIEW.equals("classes"));
+        nameIndex = new ClassNameIndex(nodes);
         listeners = new ArrayList<>();
     }
 
@@ -106,8 +129,10 @@ public class GraphDisplay {
         glWindow.setTitle("ClassGraph");
         glWindow.setSize(800, 600);
 
-        glWindow.addGLEventListener(new GDEvents());
+        events = new GDEvents();
+        glWindow.addGLEventListener(events);
         glWindow.addKeyListener(new GDKeyListener());
+        glWindow.addMouseListener(new GDMouseListener());
         glWindow.addWindowListener(new WindowAdapter() {
             @Override
             public void windowDestroyed(WindowEvent arg0) {
@@ -125,8 +150,8 @@ public class GraphDisplay {
         animator.add(glWindow);
         animator.start();
 
-        modifier = new Thread(new Modifier());
-        modifier.setName("modifier");
+        modifier = new Thread(new LayoutScheduler(packageView, layout, snapshots, startPositions));
+        modifier.setName("layout");
         modifier.start();
 
         glWindow.setVisible(true);
@@ -141,184 +166,291 @@ public class GraphDisplay {
             // expected
         }
 
+        layout.terminate();
         animator.stop();
         glWindow.destroy();
     }
 
-    private void updateNodes() {
-        Map<String, ClassNode> nodeMap = classNodes.get();
-
-        repelNodes(nodeMap);
-        attractNodes(nodeMap);
-    }
+    private static void centerWindow(GLWindow window) {
+        GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
+        GraphicsDevice gd = ge.getDefaultScreenDevice();
+        GraphicsConfiguration gc = gd.getDefaultConfiguration();
+        Rectangle screenBounds = gc.getBounds();
 
-    private static void repelNodes(Map<String, ClassNode> nodeMap) {
-        ClassNode[] nodes = nodeMap.values().toArray(new ClassNode[nodeMap.size()]);
-        for (int i = 0; i < (nodes.length - 1); ++i) {
-            ClassNode node1 = nodes[i];
-            for (int j = i + 1; j < nodes.length; ++j) {
-                ClassNode node2 = nodes[j];
+        int w = window.getWidth();
+        int h = window.getHeight();
 
-                if (node1.getRelationships().containsKey(node2.getFQCN()) || node2.getRelationships().containsKey(node1.getFQCN())) {
-                    if (isCloseTo(node1, node2, SHORT_REPEL_DISTANCE_SQUARED)) {
-                        repel(node1, node2, SHORT_REPEL_DISTANCE / 3);
-                    }
-                } else {
-                    float distance = getDistanceSquared(node1, node2);
-                    if (distance < LONG_REPEL_DISTANCE_SQUARED) {
-                        float repelDistance = (float) (Math.sqrt(LONG_REPEL_DISTANCE_SQUARED - distance) / 3);
-                        repel(node1, node2, repelDistance);
-                    }
-                }
-            }
-        }
+        window.setPosition((screenBounds.width - w) / 2, (screenBounds.height - h) / 3);
     }
 
-    private void attractNodes(Map<String, ClassNode> nodeMap) {
-        for (ClassNode node : nodeMap.values()) {
-            for (String attractorName : node.getRelationships().keySet()) {
-                ClassNode attractorNode = nodeMap.get(attractorName);
+    /**
+     * draws the shown items, and owns the camera, which looks from the eye at a target,
+     * and flies towards the selected class, following it as the layout moves it
+     */
+    class GDEvents implements GLEventListener {
 
-                if (attractorNode != null) {
-                    if (isFarAwayFrom(node, attractorNode)) {
-                        attract(node, attractorNode);
-                    }
-                }
-            }
-        }
-    }
+        private GLU glu;
+        private NodeRenderer nodeRenderer;
+        private ViewFrustum view = new ViewFrustum();
+        private LabelSelector labels = new LabelSelector();
+        private float[] ray = new float[3];
+
+        private float[] eye = { 0, 0, 500 };
+        private float[] target = { 0, 0, 0 };
+        private int selectedClass = -1;
+        private boolean flying;
+
+        private ViewGraph graph;
+        private LayoutPositions positions;
+        private SpatialGrid grid;
+        private int count;
+
+        // the grid visitors, made once so that culling doesn't allocate each frame
+        private SpatialGrid.Visitor labelOffer = this::offerLabel;
+        private SpatialGrid.Visitor centerOffer = this::offerCentered;
+        private int unlabeled;
+        private int centered;
+        private float centeredOffCenter;
 
-    private static boolean isCloseTo(ClassNode node1, ClassNode node2, float distance) {
-        float distanceSq = getDistanceSquared(node1, node2);
-        return distanceSq < distance;
-    }
+        @Override
+        public void display(GLAutoDrawable drawable) {
+            GL2 gl = drawable.getGL().getGL2();
 
-    private static float getDistanceSquared(ClassNode node1, ClassNode node2) {
-        float[] pos1 = node1.getPosition();
-        float[] pos2 = node2.getPosition();
+            gl.glClear(GL.GL_COLOR_BUFFER_BIT | GL.GL_DEPTH_BUFFER_BIT);
 
-        return distanceSquared(pos1, pos2);
-    }
+            positions = snapshots.acquire();
+            grid = snapshots.getGrid();
+            graph = snapshots.getView();
+            if (graph == null) {
+                return;
+            }
 
-    private static boolean isFarAwayFrom(ClassNode node1, ClassNode node2) {
-        float[] pos1 = node1.getPosition();
-        float[] pos2 = node2.getPosition();
+            count = positions.size();
+            float[] xs = positions.getX();
+            float[] ys = positions.getY();
+            float[] zs = positions.getZ();
 
-        float distanceSq = distanceSquared(pos1, pos2);
-        return distanceSq > ATTRACTION_DISTANCE_SQUARED;
-    }
+            int width = drawable.getSurfaceWidth();
+            int height = Math.max(1, drawable.getSurfaceHeight());
+            float widthHeightRatio = (float) width / (float) height;
+            view.set(eye, target, FIELD_OF_VIEW, widthHeightRatio, NEAR_PLANE, FAR_PLANE, height);
 
-    private static void repel(ClassNode node1, ClassNode node2, float repelSpeed) {
-        float[] pos1 = node1.getPosition();
-        float[] pos2 = node2.getPosition();
+            Runnable action;
+            while ((action = inputActions.poll()) != null) {
+                action.run();
+            }
 
-        float[] uv = unitVector(pos1, pos2);
+            int selected = selectedItem();
+            if (selected >= 0) {
+                follow(xs[selected], ys[selected], zs[selected]);
+            }
+            view.set(eye, target, FIELD_OF_VIEW, widthHeightRatio, NEAR_PLANE, FAR_PLANE, height);
 
-        for (int i = 0; i < 3; ++i) {
-            pos1[i] += -repelSpeed * uv[i];
-            pos2[i] += +repelSpeed * uv[i];
-        }
-    }
+            gl.glMatrixMode(GLMatrixFunc.GL_PROJECTION);
+            gl.glLoadIdentity();
+            glu.gluPerspective(FIELD_OF_VIEW, widthHeightRatio, NEAR_PLANE, FAR_PLANE);
+            glu.gluLookAt(eye[0], eye[1], eye[2], target[0], target[1], target[2], 0, 1, 0);
+            gl.glMatrixMode(GLMatrixFunc.GL_MODELVIEW);
 
-    private void attract(ClassNode node1, ClassNode node2) {
+            nodeRenderer.draw(gl, graph, positions, grid, count, view);
 
-        float attraction = classNodes.getAttractionBetween(node1, node2);
-        if (attraction != 0.0f) {
+            // only the nearest labels that are on screen and large enough to read
+            labels.reset(MAX_LABELS);
+            unlabeled = selected;
+            grid.forEachInView(view, 2.0f * LABEL_OFFSET, labelOffer);
 
-            float[] pos1 = node1.getPosition();
-            float[] pos2 = node2.getPosition();
+            if ((labels.size() > 0) || (selected >= 0)) {
+                try {
+                    textRenderer.begin3DRendering();
+                    textRenderer.setColor(1.0f, 0.5f, 0.2f, 1.0f);
 
-            float[] uv = unitVector(pos1, pos2);
-            float multipler = attraction;
+                    for (int l = 0; l < labels.size(); ++l) {
+                        int i = labels.getNode(l);
+                        textRenderer.draw3D(graph.getLabel(i), xs[i] + LABEL_OFFSET, ys[i], zs[i], 1.0f);
+                    }
 
-            for (int i = 0; i < 3; ++i) {
-                pos1[i] += multipler * uv[i];
-                pos2[i] += -multipler * uv[i];
+                    if (selected >= 0) {
+                        textRenderer.setColor(1.0f, 1.0f, 1.0f, 1.0f);
+                        textRenderer.draw3D(graph.getLabel(selected), xs[selected] + LABEL_OFFSET, ys[selected], zs[selected], 1.0f);
+                    }
+                } finally {
+                    textRenderer.end3DRendering();
+                }
             }
         }
-    }
-
-    private static float distanceSquared(float[] pos1, float[] pos2) {
-        float x = pos1[0] - pos2[0];
-        float y = pos1[1] - pos2[1];
-        float z = pos1[2] - pos2[2];
 
-        return (x * x) + (y * y) + (z * z);
-    }
-
-    private static float[] unitVector(float[] pos1, float[] pos2) {
-        float[] uv = { pos2[0] - pos1[0], pos2[1] - pos1[1], pos2[2] - pos1[2] };
-        float denom = (float) Math.sqrt((uv[0] * uv[0]) + (uv[1] * uv[1]) + (uv[2] * uv[2]));
+        /**
+         * offers the label of an item in a cell on screen, if the label itself is on
+         * screen and large enough to read
+         */
+        private void offerLabel(int i) {
+            if (i == unlabeled) {
+                return;
+            }
 
-        if (denom == 0.0f) {
-            uv[0] = (float) ((Math.random() * 10.0) - 5.0);
-            uv[1] = (float) ((Math.random() * 10.0) - 5.0);
-            uv[2] = (float) ((Math.random() * 10.0) - 5.0);
-            denom = (float) Math.sqrt((uv[0] * uv[0]) + (uv[1] * uv[1]) + (uv[2] * uv[2]));
+            float x = positions.getX()[i];
+            float y = positions.getY()[i];
+            float z = positions.getZ()[i];
+            if (view.isVisible(x + LABEL_OFFSET, y, z, LABEL_OFFSET)) {
+                float depth = view.depth(x, y, z);
+                if ((depth > 0.0f) && ((FONT_SIZE * view.pixelsPerUnit(depth)) >= MIN_LABEL_PIXELS)) {
+                    labels.offer(i, depth);
+                }
+            }
         }
 
-        uv[0] /= denom;
-        uv[1] /= denom;
-        uv[2] /= denom;
+        /**
+         * keeps the item in a cell on screen that appears nearest the center of the screen
+         */
+        private void offerCentered(int i) {
+            float offCenter = view.offCenter(positions.getX()[i], positions.getY()[i], positions.getZ()[i]);
+            if (offCenter < centeredOffCenter) {
+                centered = i;
+                centeredOffCenter = offCenter;
+            }
+        }
 
-        return uv;
-    }
+        /**
+         * @return the item that shows the selected class, or -1
+         */
+        private int selectedItem() {
+            if ((selectedClass < 0) || (selectedClass >= graph.getClassCount())) {
+                return -1;
+            }
+            int item = graph.getItem(selectedClass);
+            return (item < count) ? item : -1;
+        }
 
-    private static void centerWindow(GLWindow window) {
-        GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
-        GraphicsDevice gd = ge.getDefaultScreenDevice();
-        GraphicsConfiguration gc = gd.getDefaultConfiguration();
-        Rectangle screenBounds = gc.getBounds();
+        /**
+         * eases the target towards the selected item, and while flying, the eye towards
+         * a point at a fixed distance from it
+         */
+        private void follow(float x, float y, float z) {
+            float backX = eye[0] - target[0];
+            float backY = eye[1] - target[1];
+            float backZ = eye[2] - target[2];
+            float backLength = VectorMath.length(backX, backY, backZ);
+
+            float moved = followAxis(0, x, backX, backLength) + followAxis(1, y, backY, backLength) + followAxis(2, z, backZ, backLength);
+            if (moved < 0.01f) {
+                flying = false;
+            }
+        }
 
-        int w = window.getWidth();
-        int h = window.getHeight();
+        /**
+         * moves the target, and the eye, along one axis towards the item at to
+         *
+         * @return how far they moved
+         */
+        private float followAxis(int a, float to, float back, float backLength) {
+            float step = (to - target[a]) * FLY_RATE;
+            target[a] += step;
+            float moved = Math.abs(step);
+            if (flying) {
+                float goal = to + ((backLength == 0.0f) ? ((a == 2) ? FLY_DISTANCE : 0.0f) : ((back / backLength) * FLY_DISTANCE));
+                float eyeStep = (goal - eye[a]) * FLY_RATE;
+                eye[a] += eyeStep;
+                moved += Math.abs(eyeStep);
+            } else {
+                eye[a] += step;
+            }
+            return moved;
+        }
 
-        window.setPosition((screenBounds.width - w) / 2, (screenBounds.height - h) / 3);
-    }
+        void select(int classIndex) {
+            selectedClass = classIndex;
+            flying = classIndex >= 0;
+        }
 
-    class GDEvents implements GLEventListener {
+        /**
+         * selects a class found by the search, first expanding the package it is shown
+         * by, if it is collapsed
+         */
+        void find(int classIndex) {
+            if ((graph != null) && (classIndex < graph.getClassCount())) {
+                int item = graph.getItem(classIndex);
+                if (graph.isPackage(item)) {
+                    packageView.expand(graph.getPackage(item));
+                }
+            }
+            select(classIndex);
+        }
 
-        private GLU glu;
-        private int sphereList;
+        /**
+         * selects what is under a point of the screen, by casting a ray through the grid
+         * of the shown positions that was published with them
+         */
+        void pick(float screenX, float screenY) {
+            if (graph == null) {
+                return;
+            }
 
-        @Override
-        public void display(GLAutoDrawable drawable) {
-            GL2 gl = drawable.getGL().getGL2();
+            view.ray(screenX, screenY, ray);
+            int item = snapshots.getGrid().raycast(eye[0], eye[1], eye[2], ray[0], ray[1], ray[2], RADIUS);
+            select((item >= 0) ? graph.getFirstClass(item) : -1);
+        }
 
-            gl.glClear(GL.GL_COLOR_BUFFER_BIT | GL.GL_DEPTH_BUFFER_BIT);
-            for (ClassNode node : classNodes) {
+        /**
+         * expands the selected package, or else the one shown nearest the center of the
+         * screen, of those in the cells of the grid on screen, or collapses the package of
+         * the selected or centered item
+         */
+        void openOrClose(boolean open) {
+            if (graph == null) {
+                return;
+            }
 
-                float[] color = node.getColor();
-                gl.glMaterialfv(GL.GL_FRONT, GLLightingFunc.GL_AMBIENT, color, 0);
-                gl.glMaterialfv(GL.GL_FRONT, GLLightingFunc.GL_SPECULAR, color, 0);
-                gl.glMaterialf(GL.GL_FRONT, GLLightingFunc.GL_SHININESS, 0.5f);
-                gl.glMaterialf(GL.GL_FRONT, GLLightingFunc.GL_EMISSION, node.getType() == ClassType.OBJECT_CLASS ? 1.0f : 0.0f);
+            int item = selectedItem();
+            if (item < 0) {
+                centered = -1;
+                centeredOffCenter = Float.POSITIVE_INFINITY;
+                grid.forEachInView(view, RADIUS, centerOffer);
+                item = centered;
+            }
 
-                float[] pos = node.getPosition();
-                try {
-                    textRenderer.begin3DRendering();
-                    textRenderer.setColor(1.0f, 0.5f, 0.2f, 1.0f);
+            if (item < 0) {
+                return;
+            }
 
-                    textRenderer.draw3D(node.getSimpleName(), pos[0] + 20.0f, pos[1], pos[2], 1.0f);
-                } finally {
-                    textRenderer.end3DRendering();
+            if (open) {
+                if (graph.isPackage(item)) {
+                    packageView.expand(graph.getPackage(item));
                 }
+            } else {
+                packageView.collapse(graph.getPackage(item));
+            }
+        }
 
-                gl.glColor3f(color[0], color[1], color[2]);
-                gl.glPushMatrix();
-                try {
-                    gl.glTranslatef(pos[0], pos[1], pos[2]);
-                    gl.glCallList(sphereList);
-
-                } finally {
-                    gl.glPopMatrix();
-                }
+        /**
+         * zooms towards or away from the target, which the eye never passes
+         */
+        void zoom(float distance) {
+            float[] toward = new float[3];
+            float length = VectorMath.length(target[0] - eye[0], target[1] - eye[1], target[2] - eye[2]);
+            if ((length - distance) < STEP_SIZE) {
+                return;
+            }
+            for (int a = 0; a < 3; ++a) {
+                toward[a] = (target[a] - eye[a]) / length;
+                eye[a] += toward[a] * distance;
             }
+            flying = false;
+        }
+
+        /**
+         * spins the eye around the target, about the y axis
+         */
+        void rotate(float angle) {
+            float dx = eye[0] - target[0];
+            float dz = eye[2] - target[2];
+            eye[0] = target[0] + (float) ((Math.cos(angle) * dx) - (Math.sin(angle) * dz));
+            eye[2] = target[2] + (float) ((Math.sin(angle) * dx) + (Math.cos(angle) * dz));
+            flying = false;
         }
 
         @Override
         public void dispose(GLAutoDrawable drawable) {
-            // do nothing
+            nodeRenderer.dispose(drawable.getGL().getGL2());
         }
 
         @Override
@@ -339,17 +471,19 @@ public class GraphDisplay {
             gl.glLightfv(GLLightingFunc.GL_LIGHT0, GLLightingFunc.GL_DIFFUSE, DIFFUSE, 0);
             gl.glLightfv(GLLightingFunc.GL_LIGHT0, GLLightingFunc.GL_POSITION, LIGHT_POSITION, 0);
 
-            sphereList = gl.glGenLists(1);
-            gl.glNewList(sphereList, GL2.GL_COMPILE);
-
-            GLUquadric nodeGraphic = glu.gluNewQuadric();
-            glu.gluQuadricDrawStyle(nodeGraphic, GLU.GLU_FILL);
-            glu.gluQuadricNormals(nodeGraphic, GLU.GLU_SMOOTH);
-            glu.gluQuadricOrientation(nodeGraphic, GLU.GLU_OUTSIDE);
-
-            glu.gluSphere(nodeGraphic, RADIUS, SLICES, STACKS);
-            glu.gluDeleteQuadric(nodeGraphic);
-            gl.glEndList();
+            // point sprites unless asked otherwise, or the context can't do them
+            nodeRenderer = null;
+            if (!RENDERER.equals("legacy")) {
+                nodeRenderer = new PointSpriteRenderer(RADIUS);
+                if (!nodeRenderer.init(gl)) {
+                    LOGGER.info("Falling back to legacy node rendering");
+                    nodeRenderer = null;
+                }
+            }
+            if (nodeRenderer == null) {
+                nodeRenderer = new LegacyNodeRenderer(RADIUS);
+                nodeRenderer.init(gl);
+            }
 
             Font f = new Font("SansSerif", Font.BOLD, FONT_SIZE);
             textRenderer = new TextRenderer(f);
@@ -360,78 +494,111 @@ public class GraphDisplay {
             GL2 gl = drawable.getGL().getGL2();
             gl.glViewport(0, 0, width, height);
 
-            gl.glMatrixMode(GLMatrixFunc.GL_PROJECTION);
-            gl.glLoadIdentity();
-
-            float widthHeightRatio = (float) width / (float) height;
-            glu.gluPerspective(45, widthHeightRatio, 1, 1000);
-            glu.gluLookAt(eyeLocation[0], eyeLocation[1], eyeLocation[2], 0, 0, 0, 0, 1, 0);
-
+            // the projection follows the eye, and is set up by every display
             gl.glMatrixMode(GLMatrixFunc.GL_MODELVIEW);
             gl.glLoadIdentity();
         }
     }
 
+    /**
+     * hands camera moves to the render thread, and runs the class search. Typing / starts
+     * a search, each typed character narrows it, enter selects the match shown in the
+     * title and moves on to the next, and escape ends the search, or else clears the
+     * selection. The search and its matches are shown in the window title.
+     */
     class GDKeyListener extends KeyAdapter {
 
+        private StringBuilder search;
+        private int match;
+
         @Override
         public void keyPressed(KeyEvent e) {
 
-            GL2 gl = glWindow.getGL().getGL2();
-            gl.getContext().makeCurrent();
+            int keyCode = e.getKeyCode();
+            if (search != null) {
+                searchKey(e);
+                return;
+            }
 
-            try {
+            if (keyCode == KeyEvent.VK_UP) {
+                inputActions.add(() -> events.zoom(STEP_SIZE));
+            } else if (keyCode == KeyEvent.VK_DOWN) {
+                inputActions.add(() -> events.zoom(-STEP_SIZE));
+            } else if (keyCode == KeyEvent.VK_LEFT) {
+                inputActions.add(() -> events.rotate(ROTATION_SIZE));
+            } else if (keyCode == KeyEvent.VK_RIGHT) {
+                inputActions.add(() -> events.rotate(-ROTATION_SIZE));
+            } else if (keyCode == KeyEvent.VK_E) {
+                inputActions.add(() -> events.openOrClose(true));
+            } else if (keyCode == KeyEvent.VK_C) {
+                inputActions.add(() -> events.openOrClose(false));
+            } else if (keyCode == KeyEvent.VK_SLASH) {
+                search = new StringBuilder();
+                match = 0;
+                showSearch();
+            } else if (keyCode == KeyEvent.VK_ESCAPE) {
+                inputActions.add(() -> events.select(-1));
+            }
+        }
 
-                gl.glMatrixMode(GLMatrixFunc.GL_PROJECTION);
-                gl.glLoadIdentity();
+        private void searchKey(KeyEvent e) {
+            int keyCode = e.getKeyCode();
+            if (keyCode == KeyEvent.VK_ESCAPE) {
+                search = null;
+                glWindow.setTitle("ClassGraph");
+                return;
+            }
 
-                int keyCode = e.getKeyCode();
-                if (keyCode == KeyEvent.VK_UP) {
-                    float[] uv = unitVector(ORIGIN, eyeLocation);
-                    for (int i = 0; i < 3; ++i) {
-                        uv[i] *= STEP_SIZE;
-                        eyeLocation[i] -= uv[i];
-                    }
-                } else if (keyCode == KeyEvent.VK_DOWN) {
-                    float[] uv = unitVector(ORIGIN, eyeLocation);
-                    for (int i = 0; i < 3; ++i) {
-                        uv[i] *= STEP_SIZE;
-                        eyeLocation[i] += uv[i];
-                    }
-                } else if (keyCode == KeyEvent.VK_LEFT) {
-                    float x = (float) ((Math.cos(ROTATION_SIZE) * eyeLocation[0]) - (Math.sin(ROTATION_SIZE) * eyeLocation[2]));
-                    float z = (float) ((Math.sin(ROTATION_SIZE) * eyeLocation[0]) + (Math.cos(ROTATION_SIZE) * eyeLocation[2]));
-                    eyeLocation[0] = x;
-                    eyeLocation[2] = z;
-                } else if (keyCode == KeyEvent.VK_RIGHT) {
-                    float x = (float) ((Math.cos(-ROTATION_SIZE) * eyeLocation[0]) - (Math.sin(-ROTATION_SIZE) * eyeLocation[2]));
-                    float z = (float) ((Math.sin(-ROTATION_SIZE) * eyeLocation[0]) + (Math.cos(-ROTATION_SIZE) * eyeLocation[2]));
-                    eyeLocation[0] = x;
-                    eyeLocation[2] = z;
+            if (keyCode == KeyEvent.VK_ENTER) {
+                int cls = nameIndex.get(search.toString(), match);
+                if (cls >= 0) {
+                    inputActions.add(() -> events.find(cls));
+                    showSearch();
+                    match = (match + 1) % Math.max(1, nameIndex.count(search.toString()));
+                }
+                return;
+            } else if (keyCode == KeyEvent.VK_BACK_SPACE) {
+                if (search.length() > 0) {
+                    search.setLength(search.length() - 1);
                 }
-                GLU glu = new GLU();
-                float widthHeightRatio = (float) glWindow.getWidth() / (float) glWindow.getHeight();
-                glu.gluPerspective(45, widthHeightRatio, 1, 1000);
-                glu.gluLookAt(eyeLocation[0], eyeLocation[1], eyeLocation[2], 0, 0, 0, 0, 1, 0);
-
-                gl.glMatrixMode(GLMatrixFunc.GL_MODELVIEW);
-            } finally {
-                gl.getContext().release();
+                match = 0;
+            } else if (e.isPrintableKey() && (e.getKeyChar() != KeyEvent.NULL_CHAR)) {
+                search.append(e.getKeyChar());
+                match = 0;
+            } else {
+                return;
+            }
+            showSearch();
+        }
+
+        private void showSearch() {
+            String prefix = search.toString();
+            int matches = nameIndex.count(prefix);
+            StringBuilder title = new StringBuilder("ClassGraph - /").append(prefix);
+            if (matches > 0) {
+                int cls = nameIndex.get(prefix, match);
+                title.append(" (").append(match + 1).append(" of ").append(matches).append(") ").append(classNodes.getNode(cls).getFQCN());
+            } else if (!prefix.isEmpty()) {
+                title.append(" (no match)");
             }
+            glWindow.setTitle(title.toString());
         }
     }
 
-    class Modifier implements Runnable {
+    /**
+     * hands clicks to the render thread, which picks what is under them
+     */
+    class GDMouseListener extends MouseAdapter {
+
         @Override
-        public void run() {
-            try {
-                while (!Thread.interrupted()) {
-                    Thread.sleep(500);
-                    updateNodes();
-                }
-            } catch (InterruptedException ie) {
-                LOGGER.error("Modifier thread interrupted");
+        public void mouseClicked(MouseEvent e) {
+            if (e.getButton() != MouseEvent.BUTTON1) {
+                return;
             }
+
+            float screenX = ((2.0f * e.getX()) / Math.max(1, glWindow.getWidth())) - 1.0f;
+            float screenY = 1.0f - ((2.0f * e.getY()) / Math.max(1, glWindow.getHeight()));
+            inputActions.add(() -> events.pick(screenX, screenY));
         }
     }
 }
@@ -0,0 +1,138 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * writes the class nodes, their laid out positions and their relationships as GraphML,
+ * which graph tools such as Gephi and yEd can read. Nodes carry their class name, type
+ * and x, y, z position, and edges their summed relationship weight.
+ */
+public class GraphExporter {
+
+    private static final String GRAPHML_NS = "http://graphml.graphdrawing.org/xmlns";
+
+    private ClassNodes classNodes;
+    private CompactGraph graph;
+    private LayoutPositions positions;
+
+    public GraphExporter(ClassNodes nodes, CompactGraph compactGraph, LayoutPositions layoutPositions) {
+        classNodes = nodes;
+        graph = compactGraph;
+        positions = layoutPositions;
+    }
+
+    public void export(File f) throws IOException {
+        try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(f.toPath()))) {
+            XMLStreamWriter xml = XMLOutputFactory.newInstance().createXMLStreamWriter(os, "UTF-8");
+            try {
+                write(xml);
+            } finally {
+                xml.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed writing graph to " + f, e);
+        }
+    }
+
+    private void write(XMLStreamWriter xml) throws XMLStreamException {
+        xml.writeStartDocument("UTF-8", "1.0");
+        xml.writeCharacters("\n");
+        xml.writeStartElement("graphml");
+        xml.writeDefaultNamespace(GRAPHML_NS);
+        xml.writeCharacters("\n");
+
+        writeKey(xml, "name", "node", "string");
+        writeKey(xml, "type", "node", "string");
+        writeKey(xml, "x", "node", "float");
+        writeKey(xml, "y", "node", "float");
+        writeKey(xml, "z", "node", "float");
+        writeKey(xml, "weight", "edge", "float");
+
+        xml.writeStartElement("graph");
+        xml.writeAttribute("id", "classgraph");
+        xml.writeAttribute("edgedefault", "undirected");
+        xml.writeCharacters("\n");
+
+        int nodeCount = Math.min(graph.getNodeCount(), positions.size());
+        float[] x = positions.getX();
+        float[] y = positions.getY();
+        float[] z = positions.getZ();
+        for (int i = 0; i < nodeCount; ++i) {
+            ClassNode node = classNodes.getNode(i);
+            xml.writeStartElement("node");
+            xml.writeAttribute("id", "n" + i);
+            writeData(xml, "name", node.getFQCN());
+            writeData(xml, "type", node.getType().name());
+            writeData(xml, "x", String.valueOf(x[i]));
+            writeData(xml, "y", String.valueOf(y[i]));
+            writeData(xml, "z", String.valueOf(z[i]));
+            xml.writeEndElement();
+            xml.writeCharacters("\n");
+        }
+
+        // every relationship is stored in both rows, so only write it from the lower index
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        float[] weights = graph.getWeights();
+        for (int i = 0; i < nodeCount; ++i) {
+            for (int k = offsets[i]; k < offsets[i + 1]; ++k) {
+                int j = targets[k];
+                if ((j > i) && (j < nodeCount)) {
+                    xml.writeStartElement("edge");
+                    xml.writeAttribute("source", "n" + i);
+                    xml.writeAttribute("target", "n" + j);
+                    writeData(xml, "weight", String.valueOf(weights[k]));
+                    xml.writeEndElement();
+                    xml.writeCharacters("\n");
+                }
+            }
+        }
+
+        xml.writeEndElement();
+        xml.writeCharacters("\n");
+        xml.writeEndElement();
+        xml.writeCharacters("\n");
+        xml.writeEndDocument();
+    }
+
+    private static void writeKey(XMLStreamWriter xml, String name, String domain, String type) throws XMLStreamException {
+        xml.writeEmptyElement("key");
+        xml.writeAttribute("id", name);
+        xml.writeAttribute("for", domain);
+        xml.writeAttribute("attr.name", name);
+        xml.writeAttribute("attr.type", type);
+        xml.writeCharacters("\n");
+    }
+
+    private static void writeData(XMLStreamWriter xml, String key, String value) throws XMLStreamException {
+        xml.writeStartElement("data");
+        xml.writeAttribute("key", key);
+        xml.writeCharacters(value);
+        xml.writeEndElement();
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * a built graph and its layout, saved in a versioned binary file, so a later session
+ * can start from it instead of parsing and laying out again. The file holds
+ * <ul>
+ * <li>a header of magic, version, node count, stored edge count, position count and the
+ * length of the name table</li>
+ * <li>the offsets of each class name into the name table, and the UTF-8 name table</li>
+ * <li>the {@link ClassType} ordinal of each node</li>
+ * <li>the {@link CompactGraph} rows, targets and summed relationship weights</li>
+ * <li>the x, y and z positions of the nodes</li>
+ * </ul>
+ * as big endian ints and floats, with every section padded to four bytes. Files are
+ * written through a channel, and read back from a memory mapping with bulk copies, so
+ * opening a large graph costs little more than copying its arrays.
+ */
+public class GraphFile {
+
+    private static final int MAGIC = 0x43474746;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 6 * Integer.BYTES;
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private String[] names;
+    private ClassType[] types;
+    private CompactGraph graph;
+    private LayoutPositions positions;
+
+    private GraphFile(String[] classNames, ClassType[] classTypes, CompactGraph compactGraph, LayoutPositions layoutPositions) {
+        names = classNames;
+        types = classTypes;
+        graph = compactGraph;
+        positions = layoutPositions;
+    }
+
+    /**
+     * writes the nodes of the graph, their relationships and as many of their positions
+     * as there are, replacing the file only once it is completely written
+     *
+     * @param f
+     * @param nodes
+     * @param compactGraph
+     *            the graph of the nodes, as returned by {@link ClassNodes#getCompactGraph()}
+     * @param layoutPositions
+     *            the positions of the nodes of the graph
+     * @throws IOException
+     */
+    public static void save(File f, ClassNodes nodes, CompactGraph compactGraph, LayoutPositions layoutPositions) throws IOException {
+        int nodeCount = compactGraph.getNodeCount();
+        int edgeCount = compactGraph.getEdgeCount();
+        int positionCount = Math.min(nodeCount, layoutPositions.size());
+
+        byte[][] nameBytes = new byte[nodeCount][];
+        int[] nameOffsets = new int[nodeCount + 1];
+        byte[] typeOrdinals = new byte[nodeCount];
+        for (int i = 0; i < nodeCount; ++i) {
+            ClassNode node = nodes.getNode(i);
+            nameBytes[i] = node.getFQCN().getBytes(StandardCharsets.UTF_8);
+            nameOffsets[i + 1] = nameOffsets[i] + nameBytes[i].length;
+            typeOrdinals[i] = (byte) node.getType().ordinal();
+        }
+
+        File dir = f.getAbsoluteFile().getParentFile();
+        if (dir != null) {
+            Files.createDirectories(dir.toPath());
+        }
+
+        File tmpFile = new File(f.getPath() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmpFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ChannelWriter writer = new ChannelWriter(channel);
+            writer.putInts(new int[] { MAGIC, VERSION, nodeCount, edgeCount, positionCount, nameOffsets[nodeCount] }, 0, 6);
+
+            writer.putInts(nameOffsets, 0, nodeCount + 1);
+            for (byte[] name : nameBytes) {
+                writer.putBytes(name);
+            }
+            writer.pad();
+            writer.putBytes(typeOrdinals);
+            writer.pad();
+
+            writer.putInts(compactGraph.getOffsets(), 0, nodeCount + 1);
+            writer.putInts(compactGraph.getTargets(), 0, edgeCount);
+            writer.putFloats(compactGraph.getWeights(), 0, edgeCount);
+
+            writer.putFloats(layoutPositions.getX(), 0, positionCount);
+            writer.putFloats(layoutPositions.getY(), 0, positionCount);
+            writer.putFloats(layoutPositions.getZ(), 0, positionCount);
+            writer.flush();
+        }
+
+        Files.move(tmpFile.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * maps a file written by {@link #save} and reads it
+     *
+     * @param f
+     * @return
+     * @throws IOException
+     *             if the file can't be read, is from another version, or is damaged
+     */
+    public static GraphFile load(File f) throws IOException {
+        try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if ((size < HEADER_SIZE) || (size > Integer.MAX_VALUE)) {
+                throw new IOException("Graph file " + f + " has an invalid size of " + size);
+            }
+
+            MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if ((mapping.getInt() != MAGIC) || (mapping.getInt() != VERSION)) {
+                throw new IOException("Graph file " + f + " is not a graph file of version " + VERSION);
+            }
+
+            try {
+                return read(mapping);
+            } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+                throw new IOException("Graph file " + f + " is damaged", e);
+            }
+        }
+    }
+
+    private static GraphFile read(ByteBuffer mapping) {
+        int nodeCount = mapping.getInt();
+        int edgeCount = mapping.getInt();
+        int positionCount = mapping.getInt();
+        int nameTableSize = mapping.getInt();
+        if ((nodeCount < 0) || (edgeCount < 0) || (positionCount < 0) || (positionCount > nodeCount) || (nameTableSize < 0)) {
+            throw new IllegalArgumentException("Invalid counts in the header");
+        }
+        long needed = ((((2L * nodeCount) + 2L + (2L * edgeCount) + (3L * positionCount)) * Integer.BYTES) + nameTableSize + nodeCount);
+        if (needed > mapping.remaining()) {
+            throw new IllegalArgumentException("Header counts exceed the file size");
+        }
+
+        int[] nameOffsets = getInts(mapping, nodeCount + 1);
+        byte[] nameTable = new byte[nameTableSize];
+        mapping.get(nameTable);
+        skipPadding(mapping);
+        String[] names = new String[nodeCount];
+        Set<String> seen = new HashSet<>(nodeCount * 2);
+        for (int i = 0; i < nodeCount; ++i) {
+            names[i] = new String(nameTable, nameOffsets[i], nameOffsets[i + 1] - nameOffsets[i], StandardCharsets.UTF_8);
+            if (!seen.add(names[i])) {
+                throw new IllegalArgumentException("Duplicate class name " + names[i]);
+            }
+        }
+
+        ClassType[] allTypes = ClassType.values();
+        byte[] typeOrdinals = new byte[nodeCount];
+        mapping.get(typeOrdinals);
+        skipPadding(mapping);
+        ClassType[] types = new ClassType[nodeCount];
+        for (int i = 0; i < nodeCount; ++i) {
+            types[i] = allTypes[typeOrdinals[i]];
+        }
+
+        int[] offsets = getInts(mapping, nodeCount + 1);
+        int[] targets = getInts(mapping, edgeCount);
+        float[] weights = getFloats(mapping, edgeCount);
+        if ((offsets[0] != 0) || (offsets[nodeCount] != edgeCount)) {
+            throw new IllegalArgumentException("Invalid row offsets");
+        }
+        for (int i = 0; i < nodeCount; ++i) {
+            if (offsets[i] > offsets[i + 1]) {
+                throw new IllegalArgumentException("Invalid row offsets");
+            }
+        }
+        for (int target : targets) {
+            if ((target < 0) || (target >= nodeCount)) {
+                throw new IllegalArgumentException("Invalid edge target " + target);
+            }
+        }
+
+        LayoutPositions positions = new LayoutPositions();
+        positions.setSize(positionCount);
+        getFloats(mapping, positions.getX(), positionCount);
+        getFloats(mapping, positions.getY(), positionCount);
+        getFloats(mapping, positions.getZ(), positionCount);
+        for (int i = 0; i < positionCount; ++i) {
+            if (!Float.isFinite(positions.getX()[i]) || !Float.isFinite(positions.getY()[i]) || !Float.isFinite(positions.getZ()[i])) {
+                throw new IllegalArgumentException("Non finite position of node " + i);
+            }
+        }
+
+        return new GraphFile(names, types, new CompactGraph(nodeCount, offsets, targets, weights), positions);
+    }
+
+    private static int[] getInts(ByteBuffer mapping, int count) {
+        int[] values = new int[count];
+        mapping.asIntBuffer().get(values);
+        mapping.position(mapping.position() + (count * Integer.BYTES));
+        return values;
+    }
+
+    private static float[] getFloats(ByteBuffer mapping, int count) {
+        float[] values = new float[count];
+        getFloats(mapping, values, count);
+        return values;
+    }
+
+    private static void getFloats(ByteBuffer mapping, float[] values, int count) {
+        mapping.asFloatBuffer().get(values, 0, count);
+        mapping.position(mapping.position() + (count * Float.BYTES));
+    }
+
+    private static void skipPadding(ByteBuffer mapping) {
+        mapping.position((mapping.position() + 3) & ~3);
+    }
+
+    public int getNodeCount() {
+        return names.length;
+    }
+
+    public String getName(int node) {
+        return names[node];
+    }
+
+    public ClassType getType(int node) {
+        return types[node];
+    }
+
+    /**
+     * @return the relationships between the nodes, indexed like the nodes
+     */
+    public CompactGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return the saved positions, of the first nodes, or all of them
+     */
+    public LayoutPositions getPositions() {
+        return positions;
+    }
+
+    /**
+     * collects what is written into a direct buffer, and writes it to the channel
+     * whenever it fills up
+     */
+    private static class ChannelWriter {
+
+        private FileChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+        private long written;
+
+        ChannelWriter(FileChannel fileChannel) {
+            channel = fileChannel;
+        }
+
+        void putInts(int[] values, int offset, int count) throws IOException {
+            while (count > 0) {
+                makeRoom(Integer.BYTES);
+                int n = Math.min(count, buffer.remaining() / Integer.BYTES);
+                buffer.asIntBuffer().put(values, offset, n);
+                buffer.position(buffer.position() + (n * Integer.BYTES));
+                offset += n;
+                count -= n;
+            }
+        }
+
+        void putFloats(float[] values, int offset, int count) throws IOException {
+            while (count > 0) {
+                makeRoom(Float.BYTES);
+                int n = Math.min(count, buffer.remaining() / Float.BYTES);
+                buffer.asFloatBuffer().put(values, offset, n);
+                buffer.position(buffer.position() + (n * Float.BYTES));
+                offset += n;
+                count -= n;
+            }
+        }
+
+        void putBytes(byte[] values) throws IOException {
+            int offset = 0;
+            while (offset < values.length) {
+                makeRoom(1);
+                int n = Math.min(values.length - offset, buffer.remaining());
+                buffer.put(values, offset, n);
+                offset += n;
+            }
+        }
+
+        /**
+         * pads what was written so far to a multiple of four bytes
+         */
+        void pad() throws IOException {
+            int padding = (int) (-(written + buffer.position()) & 3);
+            putBytes(new byte[padding]);
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void makeRoom(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+/**
+ * computes node repulsion exactly, using a {@link SpatialGrid} with cells as large as
+ * the long repel distance, so that only the bodies in the 27 cells around a body can
+ * reach it. As long as the bodies aren't packed ever more densely, the cost of a tick
+ * grows linearly with the number of bodies, with no approximation.
+ */
+public class GridRepulsion {
+
+    private float shortRepelDistance;
+    private float longRepelDistanceSquared;
+    private SpatialGrid grid;
+
+    private float[] bodyX;
+    private float[] bodyY;
+    private float[] bodyZ;
+
+    public GridRepulsion(float shortRepelDistance, float longRepelDistance) {
+        this.shortRepelDistance = shortRepelDistance;
+        longRepelDistanceSquared = longRepelDistance * longRepelDistance;
+        grid = new SpatialGrid(longRepelDistance);
+    }
+
+    /**
+     * sorts the first count bodies into the grid. The arrays are referenced, not
+     * copied, and must not change until the displacements are accumulated.
+     *
+     * @param count
+     * @param x
+     * @param y
+     * @param z
+     */
+    public void build(int count, float[] x, float[] y, float[] z) {
+        bodyX = x;
+        bodyY = y;
+        bodyZ = z;
+        grid.build(count, x, y, z);
+    }
+
+    /**
+     * adds the repulsion that all other bodies exert on the given body into the
+     * displacement arrays. Several threads may query the grid at once.
+     *
+     * @param body
+     * @param relations
+     * @param dx
+     * @param dy
+     * @param dz
+     * @param random the source of directions for bodies that sit on top of each other
+     */
+    public void accumulate(int body, BarnesHutRepulsion.Relations relations, float[] dx, float[] dy, float[] dz, LayoutRandom random) {
+        float px = bodyX[body];
+        float py = bodyY[body];
+        float pz = bodyZ[body];
+
+        float fx = 0.0f, fy = 0.0f, fz = 0.0f;
+
+        int bx = grid.cellX(px), by = grid.cellY(py), bz = grid.cellZ(pz);
+        int x0 = Math.max(0, bx - 1), x1 = Math.min(grid.getDimX() - 1, bx + 1);
+        int y0 = Math.max(0, by - 1), y1 = Math.min(grid.getDimY() - 1, by + 1);
+        int z0 = Math.max(0, bz - 1), z1 = Math.min(grid.getDimZ() - 1, bz + 1);
+        for (int cz = z0; cz <= z1; ++cz) {
+            for (int cy = y0; cy <= y1; ++cy) {
+                for (int cx = x0; cx <= x1; ++cx) {
+                    int cell = grid.cellIndex(cx, cy, cz);
+                    for (int s = grid.getCellStart(cell); s < grid.getCellEnd(cell); ++s) {
+                        int other = grid.getPoint(s);
+                        if (other == body) {
+                            continue;
+                        }
+
+                        float ox = px - bodyX[other];
+                        float oy = py - bodyY[other];
+                        float oz = pz - bodyZ[other];
+                        float distSq = (ox * ox) + (oy * oy) + (oz * oz);
+                        if (distSq >= longRepelDistanceSquared) {
+                            continue;
+                        }
+
+                        float speed = BarnesHutRepulsion.repelSpeed(relations.isRelated(body, other), distSq, shortRepelDistance, longRepelDistanceSquared);
+                        if (speed > 0.0f) {
+                            float dist = (float) Math.sqrt(distSq);
+                            if (dist == 0.0f) {
+                                ox = random.nextFloat(-5.0f, 5.0f);
+                                oy = random.nextFloat(-5.0f, 5.0f);
+                                oz = random.nextFloat(-5.0f, 5.0f);
+                                dist = VectorMath.length(ox, oy, oz);
+                                if (dist == 0.0f) {
+                                    continue;
+                                }
+                            }
+                            float scale = speed / dist;
+                            fx += ox * scale;
+                            fy += oy * scale;
+                            fz += oz * scale;
+                        }
+                    }
+                }
+            }
+        }
+
+        dx[body] += fx;
+        dy[body] += fy;
+        dz[body] += fz;
+    }
+
+    /**
+     * @return the grid of the last build, which also answers nearest point queries
+     */
+    public SpatialGrid getGrid() {
+        return grid;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * classifies classes with hashed lookups instead of class loader resource scans. The
+ * class entries of every jar and directory on the classpath are indexed up front, and
+ * the packages of the running JDK are read from the packages listing of the jrt: module
+ * image. On JDKs without a module image, the java. and javax. prefixes stand in for
+ * the JDK packages. Classes that show up in class directories after indexing, such as
+ * while watching, are found by a file check on a miss.
+ */
+public class IndexedClassFinder implements ClassFinder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IndexedClassFinder.class);
+
+    private static final String VERSIONED_PREFIX = "META-INF/versions/";
+
+    private Set<String> jdkPackages;
+    private Set<String> classes = ConcurrentHashMap.newKeySet();
+    private List<File> directories = new ArrayList<>();
+
+    public IndexedClassFinder(Set<File> clsPath) {
+        jdkPackages = readJdkPackages();
+
+        for (File root : clsPath) {
+            if (root.isFile()) {
+                indexJar(root);
+            } else if (root.isDirectory()) {
+                directories.add(root);
+                indexDirectory(root);
+            }
+        }
+
+        LOGGER.debug("Indexed {} classes and {} JDK packages", Integer.valueOf(classes.size()), Integer.valueOf(jdkPackages.size()));
+    }
+
+    @Override
+    public ClassType classStatus(String clsName) {
+        if (isJdkClass(clsName)) {
+            return (clsName.equals("java.lang.Object")) ? ClassType.OBJECT_CLASS : ClassType.SYSTEM_CLASS;
+        }
+
+        if (classes.contains(clsName)) {
+            return ClassType.APPLICATION_CLASS;
+        }
+
+        if (!directories.isEmpty()) {
+            String path = clsName.replace('.', File.separatorChar) + ".class";
+            for (File dir : directories) {
+                if (new File(dir, path).isFile()) {
+                    classes.add(clsName);
+                    return ClassType.APPLICATION_CLASS;
+                }
+            }
+        }
+
+        return ClassType.UNKNOWN_CLASS;
+    }
+
+    private boolean isJdkClass(String clsName) {
+        if (jdkPackages.isEmpty()) {
+            return clsName.startsWith("java.") || clsName.startsWith("javax.");
+        }
+
+        int dotPos = clsName.lastIndexOf('.');
+        return (dotPos >= 0) && jdkPackages.contains(clsName.substring(0, dotPos));
+    }
+
+    private static Set<String> readJdkPackages() {
+        Set<String> packages = new HashSet<>();
+        try {
+            FileSystem jrt = FileSystems.getFileSystem(URI.create("jrt:/"));
+            try (DirectoryStream<Path> listing = Files.newDirectoryStream(jrt.getPath("/packages"))) {
+                for (Path p : listing) {
+                    packages.add(p.getFileName().toString());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.info("No jrt: module image, classifying JDK classes by package prefix");
+            packages.clear();
+        }
+        return packages;
+    }
+
+    private void indexJar(File jar) {
+        try (ZipFile zipFile = new ZipFile(jar)) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (!entry.isDirectory() && name.endsWith(".class")) {
+                    if (name.startsWith(VERSIONED_PREFIX)) {
+                        int slashPos = name.indexOf('/', VERSIONED_PREFIX.length());
+                        if (slashPos < 0) {
+                            continue;
+                        }
+                        name = name.substring(slashPos + 1);
+                    }
+                    classes.add(toClassName(name, '/'));
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed indexing jar file {}", jar, e);
+        }
+    }
+
+    private void indexDirectory(File root) {
+        int rootLength = root.getPath().length() + 1;
+        List<File> stack = new ArrayList<>();
+        stack.add(root);
+
+        while (!stack.isEmpty()) {
+            File f = stack.remove(stack.size() - 1);
+            if (f.isDirectory()) {
+                File[] children = f.listFiles();
+                if (children != null) {
+                    for (File c : children) {
+                        stack.add(c);
+                    }
+                }
+            } else if (f.getName().endsWith(".class")) {
+                classes.add(toClassName(f.getPath().substring(rootLength), File.separatorChar));
+            }
+        }
+    }
+
+    private static String toClassName(String path, char separator) {
+        return path.substring(0, path.length() - ".class".length()).replace(separator, '.');
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * random access to the classes of a jar, by way of its central directory. Any number
+ * of threads may read entries at the same time, so that the entries of one jar are
+ * inflated in parallel. The jar stays open until closed, which its owner only does
+ * once no more entries will be read.
+ */
+public class JarSource implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JarSource.class);
+
+    private File jarFile;
+    private ZipFile zipFile;
+    private List<ZipEntry> classEntries;
+
+    public JarSource(File jar) throws IOException {
+        jarFile = jar;
+        zipFile = new ZipFile(jar);
+
+        classEntries = new ArrayList<>();
+        Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            if (!entry.isDirectory() && entry.getName().endsWith(".class")) {
+                classEntries.add(entry);
+            }
+        }
+    }
+
+    public File getFile() {
+        return jarFile;
+    }
+
+    public List<ZipEntry> getClassEntries() {
+        return classEntries;
+    }
+
+    /**
+     * reads the inflated bytes of one of the class entries of this jar
+     *
+     * @param entry
+     * @return
+     * @throws IOException
+     */
+    public byte[] read(ZipEntry entry) throws IOException {
+        try (InputStream is = zipFile.getInputStream(entry)) {
+            long size = entry.getSize();
+            if ((size >= 0) && (size <= Integer.MAX_VALUE)) {
+                return is.readNBytes((int) size);
+            }
+            return is.readAllBytes();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            zipFile.close();
+        } catch (IOException e) {
+            LOGGER.error("Failed closing jar {}", jarFile, e);
+        }
+    }
+}
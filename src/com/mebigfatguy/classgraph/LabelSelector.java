@@ -0,0 +1,102 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+/**
+ * picks the nearest labels to draw in a frame, keeping at most a fixed number of them
+ * in a max heap on depth, so that offering every visible node costs no allocation and
+ * only log(limit) work per node
+ */
+public class LabelSelector {
+
+    private long[] heap = new long[0];
+    private int size;
+    private int limit;
+
+    /**
+     * empties the selection for a new frame
+     *
+     * @param maxLabels
+     */
+    public void reset(int maxLabels) {
+        if (heap.length < maxLabels) {
+            heap = new long[maxLabels];
+        }
+        limit = maxLabels;
+        size = 0;
+    }
+
+    /**
+     * @param node
+     * @param depth
+     *            which must be positive
+     */
+    public void offer(int node, float depth) {
+        // positive floats order the same as their bits
+        long entry = (((long) Float.floatToRawIntBits(depth)) << 32) | (node & 0xFFFFFFFFL);
+        if (size < limit) {
+            heap[size] = entry;
+            siftUp(size++);
+        } else if ((limit > 0) && (entry < heap[0])) {
+            heap[0] = entry;
+            siftDown(0);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param i
+     * @return the node of the i-th selected label, in no particular order
+     */
+    public int getNode(int i) {
+        return (int) heap[i];
+    }
+
+    private void siftUp(int i) {
+        long entry = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] >= entry) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = entry;
+    }
+
+    private void siftDown(int i) {
+        long entry = heap[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = (2 * i) + 1;
+            if (((child + 1) < size) && (heap[child + 1] > heap[child])) {
+                ++child;
+            }
+            if (entry >= heap[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = entry;
+    }
+}
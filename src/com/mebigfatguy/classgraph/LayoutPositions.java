@@ -0,0 +1,97 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import java.util.Arrays;
+
+/**
+ * the positions of all nodes, packed into one contiguous array per axis, and indexed
+ * by {@link ClassNode#getIndex()}. Only the layout thread grows or writes the store;
+ * readers fetch the size first and then the arrays, which are always at least that
+ * long.
+ */
+public class LayoutPositions {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private volatile float[] x = new float[INITIAL_CAPACITY];
+    private volatile float[] y = new float[INITIAL_CAPACITY];
+    private volatile float[] z = new float[INITIAL_CAPACITY];
+    private volatile int size;
+
+    /**
+     * makes room for nodes up to the given count, new nodes start at the origin
+     *
+     * @param count
+     */
+    public void ensureSize(int count) {
+        if (count <= size) {
+            return;
+        }
+
+        if (count > x.length) {
+            int capacity = Math.max(count, x.length * 2);
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            z = Arrays.copyOf(z, capacity);
+        }
+
+        size = count;
+    }
+
+    /**
+     * sets the number of nodes, growing the arrays if needed, but never shrinking them,
+     * so that readers holding the old size still find enough entries
+     *
+     * @param count
+     */
+    public void setSize(int count) {
+        ensureSize(count);
+        size = count;
+    }
+
+    /**
+     * makes this store an exact copy of another one, reusing its arrays when they are
+     * large enough
+     *
+     * @param source
+     */
+    public void copyFrom(LayoutPositions source) {
+        int count = source.size();
+        setSize(count);
+        System.arraycopy(source.getX(), 0, x, 0, count);
+        System.arraycopy(source.getY(), 0, y, 0, count);
+        System.arraycopy(source.getZ(), 0, z, 0, count);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public float[] getX() {
+        return x;
+    }
+
+    public float[] getY() {
+        return y;
+    }
+
+    public float[] getZ() {
+        return z;
+    }
+}
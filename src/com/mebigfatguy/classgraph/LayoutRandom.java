@@ -0,0 +1,60 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+/**
+ * a small, unsynchronized xorshift generator that can be reseeded in place. Each layout
+ * worker owns one, so nudging coincident nodes apart neither contends on a shared
+ * generator nor allocates a new one each tick.
+ */
+public class LayoutRandom {
+
+    private long state;
+
+    public LayoutRandom(long seed) {
+        reseed(seed);
+    }
+
+    public void reseed(long seed) {
+        // run the seed through splitmix64 so that neighbouring seeds give unrelated streams
+        long z = seed + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        state = (z == 0) ? 0x9E3779B97F4A7C15L : z;
+    }
+
+    /**
+     * @return a float in [0, 1)
+     */
+    public float nextFloat() {
+        state ^= state << 13;
+        state ^= state >>> 7;
+        state ^= state << 17;
+        return (state >>> 40) * 0x1.0p-24f;
+    }
+
+    /**
+     * @param min
+     * @param max
+     * @return a float in [min, max)
+     */
+    public float nextFloat(float min, float max) {
+        return min + (nextFloat() * (max - min));
+    }
+}
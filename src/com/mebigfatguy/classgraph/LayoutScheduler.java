@@ -0,0 +1,255 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * runs the layout for the display. While nodes are still moving, ticks run back to
+ * back, with the layout cooling its step sizes as it goes. Once the nodes move less
+ * than {@link ForceLayout#CONVERGED_DISPLACEMENT} on average, the scheduler idles,
+ * only checking now and then whether the classes or the expanded packages have
+ * changed, which starts the layout again. Every tick is published to the snapshots the
+ * renderer reads from.
+ * <p>
+ * The layout runs over the items of the {@link PackageView}. When they change, each new
+ * item starts at the average position of the items its classes were shown by, so a
+ * package opens up where it was, and a collapsed package sits where its classes were.
+ * Items that are new altogether start next to an item they are related to, or else
+ * around the origin, scattered by a seeded jitter that grows with the number of new
+ * items, so that a batch of them doesn't pile up in one cell of the grid repulsion.
+ * <p>
+ * Once the graph reaches {@link MultilevelLayout#THRESHOLD} items, and again each time
+ * it has doubled since, it is placed from scratch by levels, which untangles a large
+ * graph far quicker than ticking it as a whole.
+ * <p>
+ * The layout can also start from the saved positions of the classes, such as those of
+ * a {@link GraphFile}, in which case the first items start where their classes were
+ * saved, and the graph isn't placed by levels until it doubles.
+ */
+public class LayoutScheduler implements Runnable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LayoutScheduler.class);
+
+    private static final long IDLE_POLL_MILLIS = Long.getLong("classgraph.layout.idle", 200L).longValue();
+
+    private PackageView packageView;
+    private ForceLayout layout;
+    private PositionSnapshots snapshots;
+    private MultilevelLayout multilevel;
+    private int multilevelSize;
+    private ViewGraph current;
+    private LayoutPositions previous = new LayoutPositions();
+    private LayoutPositions start;
+    private int[] counts = new int[0];
+    private LayoutRandom random;
+
+    public LayoutScheduler(PackageView view, ForceLayout forceLayout, PositionSnapshots positionSnapshots) {
+        this(view, forceLayout, positionSnapshots, null);
+    }
+
+    /**
+     * @param view
+     * @param forceLayout
+     * @param positionSnapshots
+     * @param startPositions
+     *            the positions of the classes to start from, or null to start from the
+     *            origin
+     */
+    public LayoutScheduler(PackageView view, ForceLayout forceLayout, PositionSnapshots positionSnapshots, LayoutPositions startPositions) {
+        packageView = view;
+        layout = forceLayout;
+        snapshots = positionSnapshots;
+        multilevel = new MultilevelLayout(forceLayout, positionSnapshots);
+        start = startPositions;
+        random = new LayoutRandom(forceLayout.getSeed());
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!Thread.interrupted()) {
+                // read before the tick, so a change during the tick leads to another one
+                long modification = packageView.getModificationCount();
+
+                ViewGraph view = packageView.getViewGraph();
+                if (view != current) {
+                    if ((current == null) && (start != null)) {
+                        // the first items start where their classes were saved
+                        average(start, null, view);
+                        start = null;
+                        multilevelSize = view.size();
+                    } else {
+                        carryPositions(view);
+                    }
+                    current = view;
+                }
+
+                int size = view.size();
+                if ((MultilevelLayout.THRESHOLD > 0) && (size >= MultilevelLayout.THRESHOLD) && (size >= (multilevelSize * 2))) {
+                    int levels = multilevel.layout(view.getGraph(), view);
+                    LOGGER.debug("Placed {} nodes in {} levels", Integer.valueOf(size), Integer.valueOf(levels));
+                    multilevelSize = size;
+                }
+
+                float displacement = layout.tick(view.getGraph());
+                LayoutPositions positions = layout.getPositions();
+                snapshots.publish(positions, view);
+
+                if (displacement <= (ForceLayout.CONVERGED_DISPLACEMENT * size)) {
+                    LOGGER.debug("Layout of {} nodes converged, idling", Integer.valueOf(size));
+                    while (packageView.getModificationCount() == modification) {
+                        TimeUnit.MILLISECONDS.sleep(IDLE_POLL_MILLIS);
+                    }
+                }
+            }
+        } catch (InterruptedException ie) {
+            LOGGER.debug("Layout scheduler interrupted");
+        }
+    }
+
+    /**
+     * moves the positions over to the items of the new view. Items of classes that are
+     * new are placed by {@link #placeNew(ViewGraph)}.
+     */
+    private void carryPositions(ViewGraph view) {
+        LayoutPositions positions = layout.getPositions();
+        int size = view.size();
+        if ((current == null) || (current.getExpansion() == view.getExpansion())) {
+            // the same items in the same order, with new ones at the end
+            int kept = (current == null) ? 0 : Math.min(current.size(), size);
+            positions.setSize(size);
+            clear(positions, kept, size);
+            resetCounts(size);
+            Arrays.fill(counts, 0, kept, 1);
+            placeNew(view);
+            return;
+        }
+
+        previous.copyFrom(positions);
+        average(previous, current, view);
+    }
+
+    /**
+     * sets the position of each item of the view to the average position of its classes
+     * in the given positions, of the items of another view, or of the classes themselves
+     * if that view is null
+     */
+    private void average(LayoutPositions from, ViewGraph fromView, ViewGraph view) {
+        LayoutPositions positions = layout.getPositions();
+        int size = view.size();
+        float[] px = from.getX();
+        float[] py = from.getY();
+        float[] pz = from.getZ();
+
+        positions.setSize(size);
+        clear(positions, 0, size);
+        float[] x = positions.getX();
+        float[] y = positions.getY();
+        float[] z = positions.getZ();
+        resetCounts(size);
+
+        int classes = Math.min((fromView == null) ? from.size() : fromView.getClassCount(), view.getClassCount());
+        for (int c = 0; c < classes; ++c) {
+            int fromItem = (fromView == null) ? c : fromView.getItem(c);
+            int to = view.getItem(c);
+            x[to] += px[fromItem];
+            y[to] += py[fromItem];
+            z[to] += pz[fromItem];
+            ++counts[to];
+        }
+
+        for (int i = 0; i < size; ++i) {
+            if (counts[i] > 1) {
+                x[i] /= counts[i];
+                y[i] /= counts[i];
+                z[i] /= counts[i];
+            }
+        }
+        placeNew(view);
+    }
+
+    /**
+     * places the items that have no position yet, those with a count of 0, next to the
+     * first item they are related to that has one, or else around the origin, each with
+     * a jitter over a cube that holds about one repulsion cell per new item
+     */
+    private void placeNew(ViewGraph view) {
+        int size = view.size();
+        int added = 0;
+        for (int i = 0; i < size; ++i) {
+            if (counts[i] == 0) {
+                ++added;
+            }
+        }
+        if (added == 0) {
+            return;
+        }
+
+        float spread = 0.5f * ForceLayout.LONG_REPEL_DISTANCE * (float) Math.cbrt(added);
+        CompactGraph graph = view.getGraph();
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        int related = Math.min(size, graph.getNodeCount());
+        LayoutPositions positions = layout.getPositions();
+        float[] x = positions.getX();
+        float[] y = positions.getY();
+        float[] z = positions.getZ();
+        for (int i = 0; i < size; ++i) {
+            if (counts[i] != 0) {
+                continue;
+            }
+
+            float cx = 0.0f, cy = 0.0f, cz = 0.0f;
+            if (i < related) {
+                for (int k = offsets[i]; k < offsets[i + 1]; ++k) {
+                    int j = targets[k];
+                    if ((j < size) && (counts[j] != 0)) {
+                        cx = x[j];
+                        cy = y[j];
+                        cz = z[j];
+                        break;
+                    }
+                }
+            }
+
+            x[i] = cx + random.nextFloat(-spread, spread);
+            y[i] = cy + random.nextFloat(-spread, spread);
+            z[i] = cz + random.nextFloat(-spread, spread);
+            counts[i] = 1;
+        }
+    }
+
+    private void resetCounts(int size) {
+        if (counts.length < size) {
+            counts = new int[size];
+        } else {
+            Arrays.fill(counts, 0, size, 0);
+        }
+    }
+
+    private static void clear(LayoutPositions positions, int start, int end) {
+        Arrays.fill(positions.getX(), start, end, 0.0f);
+        Arrays.fill(positions.getY(), start, end, 0.0f);
+        Arrays.fill(positions.getZ(), start, end, 0.0f);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import com.jogamp.opengl.GL;
+import com.jogamp.opengl.GL2;
+import com.jogamp.opengl.fixedfunc.GLLightingFunc;
+import com.jogamp.opengl.glu.GLU;
+import com.jogamp.opengl.glu.GLUquadric;
+
+/**
+ * draws each node as a fixed function lit sphere from a display list, with its own
+ * material and matrix. Works with any GL2 context, but costs several GL calls per node,
+ * so only the nodes in the grid cells on screen are looked at, those of them outside
+ * the view are skipped, and small looking nodes use coarser spheres.
+ */
+public class LegacyNodeRenderer implements NodeRenderer {
+
+    // slices and stacks of each level of detail, and the on screen radius in pixels from which it is used
+    private static final int[] SLICES = { 12, 8, 5 };
+    private static final int[] STACKS = { 12, 6, 4 };
+    private static final float[] MIN_PIXELS = { 12.0f, 4.0f, 0.0f };
+
+    private float radius;
+    private int sphereLists;
+
+    // what the frame being drawn draws with, for the grid visitor
+    private SpatialGrid.Visitor nodeDrawer = this::drawNode;
+    private GL2 frameGL;
+    private ViewGraph frameGraph;
+    private LayoutPositions framePositions;
+    private ViewFrustum frameView;
+
+    public LegacyNodeRenderer(float nodeRadius) {
+        radius = nodeRadius;
+    }
+
+    @Override
+    public boolean init(GL2 gl) {
+        GLU glu = new GLU();
+
+        GLUquadric nodeGraphic = glu.gluNewQuadric();
+        glu.gluQuadricDrawStyle(nodeGraphic, GLU.GLU_FILL);
+        glu.gluQuadricNormals(nodeGraphic, GLU.GLU_SMOOTH);
+        glu.gluQuadricOrientation(nodeGraphic, GLU.GLU_OUTSIDE);
+
+        sphereLists = gl.glGenLists(SLICES.length);
+        for (int lod = 0; lod < SLICES.length; ++lod) {
+            gl.glNewList(sphereLists + lod, GL2.GL_COMPILE);
+            glu.gluSphere(nodeGraphic, radius, SLICES[lod], STACKS[lod]);
+            gl.glEndList();
+        }
+
+        glu.gluDeleteQuadric(nodeGraphic);
+        return true;
+    }
+
+    @Override
+    public void draw(GL2 gl, ViewGraph graph, LayoutPositions positions, SpatialGrid grid, int count, ViewFrustum view) {
+        frameGL = gl;
+        frameGraph = graph;
+        framePositions = positions;
+        frameView = view;
+        try {
+            grid.forEachInView(view, radius, nodeDrawer);
+        } finally {
+            frameGL = null;
+            frameGraph = null;
+            framePositions = null;
+            frameView = null;
+        }
+    }
+
+    /**
+     * draws one node of a cell on screen, unless the node itself is off screen
+     */
+    private void drawNode(int i) {
+        float x = framePositions.getX()[i];
+        float y = framePositions.getY()[i];
+        float z = framePositions.getZ()[i];
+        if (!frameView.isVisible(x, y, z, radius)) {
+            return;
+        }
+
+        float pixels = radius * frameView.pixelsPerUnit(frameView.depth(x, y, z));
+        int lod = 0;
+        while (pixels < MIN_PIXELS[lod]) {
+            ++lod;
+        }
+
+        ClassType type = frameGraph.getType(i);
+
+        float[] color = type.color();
+        GL2 gl = frameGL;
+        gl.glMaterialfv(GL.GL_FRONT, GLLightingFunc.GL_AMBIENT, color, 0);
+        gl.glMaterialfv(GL.GL_FRONT, GLLightingFunc.GL_SPECULAR, color, 0);
+        gl.glMaterialf(GL.GL_FRONT, GLLightingFunc.GL_SHININESS, 0.5f);
+        gl.glMaterialf(GL.GL_FRONT, GLLightingFunc.GL_EMISSION, type == ClassType.OBJECT_CLASS ? 1.0f : 0.0f);
+
+        gl.glColor3f(color[0], color[1], color[2]);
+        gl.glPushMatrix();
+        try {
+            gl.glTranslatef(x, y, z);
+            gl.glCallList(sphereLists + lod);
+
+        } finally {
+            gl.glPopMatrix();
+        }
+    }
+
+    @Override
+    public void dispose(GL2 gl) {
+        gl.glDeleteLists(sphereLists, SLICES.length);
+    }
+}
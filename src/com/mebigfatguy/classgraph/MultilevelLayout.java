@@ -0,0 +1,242 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * lays out large graphs by coarsening them first, in the style of FM3 and sfdp. Each
+ * level pairs every node with its most strongly related unpaired neighbour, and folds
+ * the nodes left over into their most strongly related neighbour's group, until the
+ * graph is small or stops shrinking. The coarsest graph is laid out from scratch, and
+ * each finer level starts with its nodes scattered around their group's position, so
+ * that it only needs a short refinement at a lower temperature. Each finished level can
+ * be published as a preview, with every node drawn at its group's position.
+ */
+public class MultilevelLayout {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MultilevelLayout.class);
+
+    /** the number of nodes from which the display lays out a graph by levels, 0 never does */
+    public static final int THRESHOLD = Integer.getInteger("classgraph.layout.multilevel", 2000).intValue();
+
+    private static final int COARSEST_SIZE = 100;
+    private static final float MIN_SHRINK = 0.9f;
+    private static final int COARSEST_TICKS = 500;
+    private static final int REFINE_TICKS = 100;
+    private static final float REFINE_TEMPERATURE = ForceLayout.RADIUS;
+    private static final float SCATTER = ForceLayout.RADIUS;
+
+    private ForceLayout layout;
+    private PositionSnapshots snapshots;
+    private LayoutRandom random = new LayoutRandom(0L);
+    private LayoutPositions coarse = new LayoutPositions();
+    private LayoutPositions preview = new LayoutPositions();
+
+    /**
+     * @param forceLayout
+     *            the layout whose positions are placed
+     * @param previews
+     *            where to publish each finished level, or null
+     */
+    public MultilevelLayout(ForceLayout forceLayout, PositionSnapshots previews) {
+        layout = forceLayout;
+        snapshots = previews;
+    }
+
+    /**
+     * places the nodes of the graph, leaving the finest level settled at a low
+     * temperature in the positions of the force layout
+     *
+     * @param graph
+     * @param shown
+     *            the items of the graph, published with the previews
+     * @return the number of levels
+     */
+    public int layout(CompactGraph graph, ViewGraph shown) {
+        List<CompactGraph> graphs = new ArrayList<>();
+        List<int[]> groups = new ArrayList<>();
+        graphs.add(graph);
+
+        CompactGraph current = graph;
+        while (current.getNodeCount() > COARSEST_SIZE) {
+            int[] groupOf = new int[current.getNodeCount()];
+            int groupCount = group(current, groupOf);
+            if (groupCount > (current.getNodeCount() * MIN_SHRINK)) {
+                break;
+            }
+
+            groups.add(groupOf);
+            current = current.coarsen(groupOf, groupCount);
+            graphs.add(current);
+        }
+
+        int top = graphs.size() - 1;
+        LayoutPositions positions = layout.getPositions();
+        positions.ensureSize(current.getNodeCount());
+        float[] x = positions.getX();
+        float[] y = positions.getY();
+        float[] z = positions.getZ();
+        for (int i = 0; i < current.getNodeCount(); ++i) {
+            x[i] = random.nextFloat(-SCATTER, SCATTER);
+            y[i] = random.nextFloat(-SCATTER, SCATTER);
+            z[i] = random.nextFloat(-SCATTER, SCATTER);
+        }
+
+        int ticks = layout.settle(current, COARSEST_TICKS, ForceLayout.INITIAL_TEMPERATURE);
+        LOGGER.debug("Level {} of {} nodes settled in {} ticks", Integer.valueOf(top), Integer.valueOf(current.getNodeCount()), Integer.valueOf(ticks));
+        publish(top, groups, shown);
+
+        for (int level = top - 1; level >= 0; --level) {
+            if (Thread.currentThread().isInterrupted()) {
+                return graphs.size();
+            }
+
+            spread(groups.get(level), graphs.get(level).getNodeCount());
+            ticks = layout.settle(graphs.get(level), REFINE_TICKS, REFINE_TEMPERATURE);
+            LOGGER.debug("Level {} of {} nodes settled in {} ticks", Integer.valueOf(level), Integer.valueOf(graphs.get(level).getNodeCount()), Integer.valueOf(ticks));
+            publish(level, groups, shown);
+        }
+
+        return graphs.size();
+    }
+
+    /**
+     * pairs each node with its most strongly related unpaired neighbour, then puts each
+     * unpaired node that has neighbours into the group of the strongest one
+     *
+     * @return the number of groups
+     */
+    private static int group(CompactGraph graph, int[] groupOf) {
+        int count = graph.getNodeCount();
+        int[] offsets = graph.getOffsets();
+        int[] targets = graph.getTargets();
+        float[] weights = graph.getWeights();
+
+        int groupCount = 0;
+        int[] partner = new int[count];
+        for (int i = 0; i < count; ++i) {
+            partner[i] = -1;
+        }
+
+        for (int i = 0; i < count; ++i) {
+            if (partner[i] >= 0) {
+                continue;
+            }
+
+            int best = -1;
+            float bestWeight = 0.0f;
+            for (int k = offsets[i]; k < offsets[i + 1]; ++k) {
+                int j = targets[k];
+                if ((partner[j] < 0) && (j != i) && (weights[k] > bestWeight)) {
+                    best = j;
+                    bestWeight = weights[k];
+                }
+            }
+
+            if (best >= 0) {
+                partner[i] = best;
+                partner[best] = i;
+                groupOf[i] = groupCount;
+                groupOf[best] = groupCount;
+                ++groupCount;
+            }
+        }
+
+        for (int i = 0; i < count; ++i) {
+            if (partner[i] >= 0) {
+                continue;
+            }
+
+            int best = -1;
+            float bestWeight = 0.0f;
+            for (int k = offsets[i]; k < offsets[i + 1]; ++k) {
+                int j = targets[k];
+                if ((partner[j] >= 0) && (weights[k] > bestWeight)) {
+                    best = j;
+                    bestWeight = weights[k];
+                }
+            }
+
+            groupOf[i] = (best >= 0) ? groupOf[best] : groupCount++;
+        }
+
+        return groupCount;
+    }
+
+    /**
+     * moves from a coarse level to the next finer one, scattering each node around the
+     * position of its group
+     */
+    private void spread(int[] groupOf, int count) {
+        LayoutPositions positions = layout.getPositions();
+        coarse.copyFrom(positions);
+        float[] cx = coarse.getX();
+        float[] cy = coarse.getY();
+        float[] cz = coarse.getZ();
+
+        positions.ensureSize(count);
+        float[] x = positions.getX();
+        float[] y = positions.getY();
+        float[] z = positions.getZ();
+        for (int i = 0; i < count; ++i) {
+            int group = groupOf[i];
+            x[i] = cx[group] + random.nextFloat(-SCATTER, SCATTER);
+            y[i] = cy[group] + random.nextFloat(-SCATTER, SCATTER);
+            z[i] = cz[group] + random.nextFloat(-SCATTER, SCATTER);
+        }
+    }
+
+    /**
+     * publishes a level, with every class node at the position of the group it is in
+     */
+    private void publish(int level, List<int[]> groups, ViewGraph shown) {
+        if (snapshots == null) {
+            return;
+        }
+
+        LayoutPositions positions = layout.getPositions();
+        if (level == 0) {
+            snapshots.publish(positions, shown);
+            return;
+        }
+
+        int count = shown.size();
+        preview.setSize(count);
+        float[] px = preview.getX();
+        float[] py = preview.getY();
+        float[] pz = preview.getZ();
+        float[] x = positions.getX();
+        float[] y = positions.getY();
+        float[] z = positions.getZ();
+        for (int i = 0; i < count; ++i) {
+            int node = i;
+            for (int l = 0; l < level; ++l) {
+                node = groups.get(l)[node];
+            }
+            px[i] = x[node];
+            py[i] = y[node];
+            pz[i] = z[node];
+        }
+        snapshots.publish(preview, shown);
+    }
+}
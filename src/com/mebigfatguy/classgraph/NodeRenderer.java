@@ -0,0 +1,50 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import com.jogamp.opengl.GL2;
+
+/**
+ * draws the spheres of the shown classes and packages at their laid out positions
+ */
+public interface NodeRenderer {
+
+    /**
+     * sets up the renderer's GL resources, on the GL thread
+     *
+     * @param gl
+     * @return whether the renderer can draw with this context
+     */
+    boolean init(GL2 gl);
+
+    /**
+     * @param gl
+     * @param graph
+     *            the items the positions belong to
+     * @param positions
+     * @param grid
+     *            the grid over the positions, to skip the nodes that are off screen
+     * @param count
+     *            the number of nodes to draw, no more than the size of positions
+     * @param view
+     *            the camera of this frame
+     */
+    void draw(GL2 gl, ViewGraph graph, LayoutPositions positions, SpatialGrid grid, int count, ViewFrustum view);
+
+    void dispose(GL2 gl);
+}
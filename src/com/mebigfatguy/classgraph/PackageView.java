@@ -0,0 +1,183 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * decides which classes the display shows one by one, and which are folded into one
+ * node per package. When aggregating, every package starts collapsed, and is only
+ * shown class by class once expanded, so the layout and renderer only pay for what was
+ * opened. Otherwise every class is shown. Expanding and collapsing may be done from any
+ * thread; the {@link ViewGraph} is rebuilt by the layout thread when asked for after a
+ * change.
+ */
+public class PackageView {
+
+    private static final String DEFAULT_PACKAGE = "(default)";
+
+    private ClassNodes classNodes;
+    private boolean aggregate;
+    private Set<String> expanded = ConcurrentHashMap.newKeySet();
+    private AtomicLong expansionCount = new AtomicLong();
+
+    private Map<String, Integer> packageIds = new HashMap<>();
+    private String[] packageNames = new String[64];
+    private int[] packageSizes = new int[64];
+    private int[] packageOf = new int[1024];
+    private int packagedCount;
+
+    private ViewGraph viewGraph;
+    private CompactGraph viewClasses;
+    private long viewExpansion = -1;
+
+    /**
+     * @param nodes
+     * @param aggregatePackages
+     *            whether packages start collapsed, rather than every class being shown
+     */
+    public PackageView(ClassNodes nodes, boolean aggregatePackages) {
+        classNodes = nodes;
+        aggregate = aggregatePackages;
+    }
+
+    public void expand(String packageName) {
+        if (aggregate && expanded.add(packageName)) {
+            expansionCount.incrementAndGet();
+        }
+    }
+
+    public void collapse(String packageName) {
+        if (aggregate && expanded.remove(packageName)) {
+            expansionCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return a count that goes up whenever classes, relationships or the expanded
+     *         packages change
+     */
+    public long getModificationCount() {
+        return classNodes.getModificationCount() + expansionCount.get();
+    }
+
+    /**
+     * returns the items to show, only rebuilt when classes, relationships or the
+     * expanded packages changed since the last call
+     *
+     * @return
+     */
+    public synchronized ViewGraph getViewGraph() {
+        long expansion = expansionCount.get();
+        CompactGraph classes = classNodes.getCompactGraph();
+        if ((viewGraph == null) || (classes != viewClasses) || (expansion != viewExpansion)) {
+            viewGraph = build(classes, expansion);
+            viewClasses = classes;
+            viewExpansion = expansion;
+        }
+
+        return viewGraph;
+    }
+
+    private ViewGraph build(CompactGraph classes, long expansion) {
+        int count = classes.getNodeCount();
+        assignPackages(count);
+
+        boolean[] open = new boolean[packageIds.size()];
+        for (int p = 0; p < open.length; ++p) {
+            open[p] = !aggregate || expanded.contains(packageNames[p]);
+        }
+
+        // items are numbered in class order, so with the same expanded packages, new
+        // classes only ever add items at the end
+        int[] itemOf = new int[count];
+        int[] packageItem = new int[open.length];
+        Arrays.fill(packageItem, -1);
+        String[] labels = new String[count];
+        String[] packages = new String[count];
+        ClassType[] types = new ClassType[count];
+        boolean[] isPackage = new boolean[count];
+        int[] firstClasses = new int[count];
+        int items = 0;
+
+        for (int i = 0; i < count; ++i) {
+            int p = packageOf[i];
+            if (open[p]) {
+                ClassNode node = classNodes.getNode(i);
+                labels[items] = node.getSimpleName();
+                packages[items] = packageNames[p];
+                types[items] = node.getType();
+                firstClasses[items] = i;
+                itemOf[i] = items++;
+            } else {
+                if (packageItem[p] < 0) {
+                    ClassType type = classNodes.getNode(i).getType();
+                    labels[items] = packageNames[p] + " (" + packageSizes[p] + ")";
+                    packages[items] = packageNames[p];
+                    types[items] = (type == ClassType.OBJECT_CLASS) ? ClassType.SYSTEM_CLASS : type;
+                    isPackage[items] = true;
+                    firstClasses[items] = i;
+                    packageItem[p] = items++;
+                }
+                itemOf[i] = packageItem[p];
+            }
+        }
+
+        if (items == count) {
+            return new ViewGraph(classes, itemOf, labels, packages, types, isPackage, firstClasses, expansion);
+        }
+
+        return new ViewGraph(classes.coarsen(itemOf, items), itemOf, Arrays.copyOf(labels, items), Arrays.copyOf(packages, items), Arrays.copyOf(types, items),
+                Arrays.copyOf(isPackage, items), Arrays.copyOf(firstClasses, items), expansion);
+    }
+
+    /**
+     * finds the package of each class added since the last build
+     */
+    private void assignPackages(int count) {
+        if (packageOf.length < count) {
+            packageOf = Arrays.copyOf(packageOf, Math.max(count, packageOf.length * 2));
+        }
+
+        for (int i = packagedCount; i < count; ++i) {
+            String clsName = classNodes.getNode(i).getFQCN();
+            int dotPos = clsName.lastIndexOf('.');
+            String packageName = (dotPos >= 0) ? clsName.substring(0, dotPos) : DEFAULT_PACKAGE;
+
+            Integer id = packageIds.get(packageName);
+            if (id == null) {
+                id = Integer.valueOf(packageIds.size());
+                packageIds.put(packageName, id);
+                if (id.intValue() == packageNames.length) {
+                    packageNames = Arrays.copyOf(packageNames, packageNames.length * 2);
+                    packageSizes = Arrays.copyOf(packageSizes, packageSizes.length * 2);
+                }
+                packageNames[id.intValue()] = packageName;
+            }
+
+            packageOf[i] = id.intValue();
+            ++packageSizes[id.intValue()];
+        }
+        packagedCount = Math.max(packagedCount, count);
+    }
+}
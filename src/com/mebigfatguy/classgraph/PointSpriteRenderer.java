@@ -0,0 +1,263 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import java.nio.FloatBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.opengl.GL;
+import com.jogamp.opengl.GL2;
+import com.jogamp.opengl.GL2ES2;
+
+/**
+ * draws every node with one draw call, as a point sprite that a GLSL 1.20 fragment
+ * shader shades as a lit sphere. The x, y and z positions live in one vertex buffer
+ * each, so the packed layout arrays are uploaded as is every frame, and node colors
+ * live in a fourth buffer that is only appended to as nodes are added, and uploaded
+ * again when packages are expanded or collapsed. Needs nothing
+ * beyond GL 2.1, so it also runs on software GL such as Mesa's llvmpipe.
+ */
+public class PointSpriteRenderer implements NodeRenderer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PointSpriteRenderer.class);
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final int X_ATTRIBUTE = 0;
+    private static final int Y_ATTRIBUTE = 1;
+    private static final int Z_ATTRIBUTE = 2;
+    private static final int COLOR_ATTRIBUTE = 3;
+    private static final int COLOR_COMPONENTS = 4;
+
+    private static final String VERTEX_SHADER =
+        "#version 120\n"
+        + "attribute float x;\n"
+        + "attribute float y;\n"
+        + "attribute float z;\n"
+        + "attribute vec4 color;\n"
+        + "uniform float radius;\n"
+        + "uniform float pointScale;\n"
+        + "varying vec4 nodeColor;\n"
+        + "void main() {\n"
+        + "    gl_Position = gl_ModelViewProjectionMatrix * vec4(x, y, z, 1.0);\n"
+        + "    gl_PointSize = max(1.0, 2.0 * radius * pointScale / max(gl_Position.w, 0.001));\n"
+        + "    nodeColor = color;\n"
+        + "}\n";
+
+    // the alpha of a node color is its emission, which shows it unlit
+    private static final String FRAGMENT_SHADER =
+        "#version 120\n"
+        + "const vec3 LIGHT = vec3(0.29, 0.58, 0.76);\n"
+        + "varying vec4 nodeColor;\n"
+        + "void main() {\n"
+        + "    vec2 p = vec2(gl_PointCoord.x * 2.0 - 1.0, 1.0 - gl_PointCoord.y * 2.0);\n"
+        + "    float r2 = dot(p, p);\n"
+        + "    if (r2 > 1.0) {\n"
+        + "        discard;\n"
+        + "    }\n"
+        + "    vec3 n = vec3(p, sqrt(1.0 - r2));\n"
+        + "    float diffuse = max(dot(n, LIGHT), 0.0);\n"
+        + "    float specular = pow(max(reflect(-LIGHT, n).z, 0.0), 16.0);\n"
+        + "    vec3 lit = nodeColor.rgb * (0.45 + 0.55 * diffuse) + vec3(0.25 * specular);\n"
+        + "    gl_FragColor = vec4(mix(lit, nodeColor.rgb, nodeColor.a), 1.0);\n"
+        + "}\n";
+
+    private float radius;
+    private int program;
+    private int radiusUniform;
+    private int pointScaleUniform;
+    private int[] buffers = new int[4];
+    private int capacity;
+    private int colorCount;
+    private long colorExpansion = -1;
+    private FloatBuffer axisData;
+    private FloatBuffer colorData;
+
+    public PointSpriteRenderer(float nodeRadius) {
+        radius = nodeRadius;
+    }
+
+    @Override
+    public boolean init(GL2 gl) {
+        if (!gl.hasGLSL()) {
+            LOGGER.info("No GLSL support, point sprites unavailable");
+            return false;
+        }
+
+        int vertexShader = compile(gl, GL2ES2.GL_VERTEX_SHADER, VERTEX_SHADER);
+        int fragmentShader = compile(gl, GL2ES2.GL_FRAGMENT_SHADER, FRAGMENT_SHADER);
+        if ((vertexShader == 0) || (fragmentShader == 0)) {
+            return false;
+        }
+
+        program = gl.glCreateProgram();
+        gl.glAttachShader(program, vertexShader);
+        gl.glAttachShader(program, fragmentShader);
+        gl.glBindAttribLocation(program, X_ATTRIBUTE, "x");
+        gl.glBindAttribLocation(program, Y_ATTRIBUTE, "y");
+        gl.glBindAttribLocation(program, Z_ATTRIBUTE, "z");
+        gl.glBindAttribLocation(program, COLOR_ATTRIBUTE, "color");
+        gl.glLinkProgram(program);
+        gl.glDeleteShader(vertexShader);
+        gl.glDeleteShader(fragmentShader);
+
+        int[] status = new int[1];
+        gl.glGetProgramiv(program, GL2ES2.GL_LINK_STATUS, status, 0);
+        if (status[0] == GL.GL_FALSE) {
+            LOGGER.warn("Failed linking point sprite shaders: {}", programLog(gl, program));
+            gl.glDeleteProgram(program);
+            return false;
+        }
+
+        radiusUniform = gl.glGetUniformLocation(program, "radius");
+        pointScaleUniform = gl.glGetUniformLocation(program, "pointScale");
+        gl.glGenBuffers(buffers.length, buffers, 0);
+        return true;
+    }
+
+    @Override
+    public void draw(GL2 gl, ViewGraph graph, LayoutPositions positions, SpatialGrid grid, int count, ViewFrustum view) {
+        if (count == 0) {
+            return;
+        }
+
+        ensureCapacity(gl, count);
+        uploadColors(gl, graph, count);
+        uploadAxis(gl, X_ATTRIBUTE, positions.getX(), count);
+        uploadAxis(gl, Y_ATTRIBUTE, positions.getY(), count);
+        uploadAxis(gl, Z_ATTRIBUTE, positions.getZ(), count);
+
+        gl.glUseProgram(program);
+        gl.glUniform1f(radiusUniform, radius);
+        gl.glUniform1f(pointScaleUniform, view.getFocalLength());
+        gl.glEnable(GL2.GL_VERTEX_PROGRAM_POINT_SIZE);
+        gl.glEnable(GL2.GL_POINT_SPRITE);
+
+        for (int attribute = X_ATTRIBUTE; attribute <= COLOR_ATTRIBUTE; ++attribute) {
+            gl.glBindBuffer(GL.GL_ARRAY_BUFFER, buffers[attribute]);
+            gl.glEnableVertexAttribArray(attribute);
+            gl.glVertexAttribPointer(attribute, (attribute == COLOR_ATTRIBUTE) ? COLOR_COMPONENTS : 1, GL.GL_FLOAT, false, 0, 0L);
+        }
+
+        gl.glDrawArrays(GL.GL_POINTS, 0, count);
+
+        for (int attribute = X_ATTRIBUTE; attribute <= COLOR_ATTRIBUTE; ++attribute) {
+            gl.glDisableVertexAttribArray(attribute);
+        }
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+        gl.glDisable(GL2.GL_POINT_SPRITE);
+        gl.glDisable(GL2.GL_VERTEX_PROGRAM_POINT_SIZE);
+        gl.glUseProgram(0);
+    }
+
+    @Override
+    public void dispose(GL2 gl) {
+        gl.glDeleteBuffers(buffers.length, buffers, 0);
+        gl.glDeleteProgram(program);
+    }
+
+    /**
+     * grows the buffers to hold count nodes, after which all colors are uploaded again
+     */
+    private void ensureCapacity(GL2 gl, int count) {
+        if (count <= capacity) {
+            return;
+        }
+
+        capacity = Math.max(count, Math.max(capacity * 2, INITIAL_CAPACITY));
+        for (int attribute = X_ATTRIBUTE; attribute <= Z_ATTRIBUTE; ++attribute) {
+            gl.glBindBuffer(GL.GL_ARRAY_BUFFER, buffers[attribute]);
+            gl.glBufferData(GL.GL_ARRAY_BUFFER, (long) capacity * Buffers.SIZEOF_FLOAT, null, GL2ES2.GL_STREAM_DRAW);
+        }
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, buffers[COLOR_ATTRIBUTE]);
+        gl.glBufferData(GL.GL_ARRAY_BUFFER, (long) capacity * COLOR_COMPONENTS * Buffers.SIZEOF_FLOAT, null, GL.GL_STATIC_DRAW);
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+
+        axisData = Buffers.newDirectFloatBuffer(capacity);
+        colorData = Buffers.newDirectFloatBuffer(capacity * COLOR_COMPONENTS);
+        colorCount = 0;
+    }
+
+    /**
+     * while no package is expanded or collapsed, items keep their types, so only the
+     * colors of items added since the last frame are uploaded
+     */
+    private void uploadColors(GL2 gl, ViewGraph graph, int count) {
+        if (graph.getExpansion() != colorExpansion) {
+            colorCount = 0;
+            colorExpansion = graph.getExpansion();
+        }
+
+        if (colorCount >= count) {
+            return;
+        }
+
+        colorData.clear();
+        for (int i = colorCount; i < count; ++i) {
+            ClassType type = graph.getType(i);
+            float[] color = type.color();
+            colorData.put(color[0]).put(color[1]).put(color[2]).put((type == ClassType.OBJECT_CLASS) ? 1.0f : 0.0f);
+        }
+        colorData.flip();
+
+        long componentSize = (long) COLOR_COMPONENTS * Buffers.SIZEOF_FLOAT;
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, buffers[COLOR_ATTRIBUTE]);
+        gl.glBufferSubData(GL.GL_ARRAY_BUFFER, colorCount * componentSize, (count - colorCount) * componentSize, colorData);
+        colorCount = count;
+    }
+
+    private void uploadAxis(GL2 gl, int attribute, float[] axis, int count) {
+        axisData.clear();
+        axisData.put(axis, 0, count);
+        axisData.flip();
+
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, buffers[attribute]);
+        gl.glBufferSubData(GL.GL_ARRAY_BUFFER, 0, (long) count * Buffers.SIZEOF_FLOAT, axisData);
+    }
+
+    private static int compile(GL2 gl, int type, String source) {
+        int shader = gl.glCreateShader(type);
+        gl.glShaderSource(shader, 1, new String[] { source }, null);
+        gl.glCompileShader(shader);
+
+        int[] status = new int[1];
+        gl.glGetShaderiv(shader, GL2ES2.GL_COMPILE_STATUS, status, 0);
+        if (status[0] == GL.GL_FALSE) {
+            int[] length = new int[1];
+            gl.glGetShaderiv(shader, GL2ES2.GL_INFO_LOG_LENGTH, length, 0);
+            byte[] log = new byte[Math.max(1, length[0])];
+            gl.glGetShaderInfoLog(shader, log.length, length, 0, log, 0);
+            LOGGER.warn("Failed compiling point sprite shader: {}", new String(log, 0, length[0], StandardCharsets.UTF_8));
+            gl.glDeleteShader(shader);
+            return 0;
+        }
+        return shader;
+    }
+
+    private static String programLog(GL2 gl, int program) {
+        int[] length = new int[1];
+        gl.glGetProgramiv(program, GL2ES2.GL_INFO_LOG_LENGTH, length, 0);
+        byte[] log = new byte[Math.max(1, length[0])];
+        gl.glGetProgramInfoLog(program, log.length, length, 0, log, 0);
+        return new String(log, 0, length[0], StandardCharsets.UTF_8);
+    }
+}
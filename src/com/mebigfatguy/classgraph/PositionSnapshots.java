@@ -0,0 +1,108 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * hands finished layout frames from the layout thread to the render thread without
+ * locks, using three position stores. The layout copies each finished tick into the
+ * store it owns, and swaps it with the shared one; the renderer swaps its own store
+ * with the shared one whenever a newer frame was published. Neither side ever sees a
+ * store the other is writing, so frames are never torn, and neither side waits for the
+ * other. Each frame carries the {@link ViewGraph} its positions are indexed by, and a
+ * {@link SpatialGrid} over its positions, built on the layout thread as the frame is
+ * published, so that the render thread can find the nodes near a spot or a ray without
+ * building anything.
+ */
+public class PositionSnapshots {
+
+    private static final int INDEX_MASK = 0x3;
+    private static final int FRESH = 0x4;
+
+    private LayoutPositions[] buffers = { new LayoutPositions(), new LayoutPositions(), new LayoutPositions() };
+    private ViewGraph[] views = new ViewGraph[3];
+    private SpatialGrid[] grids;
+    private AtomicInteger shared = new AtomicInteger(1);
+    private int back = 0;
+    private int front = 2;
+    private int frame;
+
+    /**
+     * @param gridCellSize
+     *            the smallest cell edge of the grids, usually the longest distance queried
+     *            for
+     */
+    public PositionSnapshots(float gridCellSize) {
+        grids = new SpatialGrid[] { new SpatialGrid(gridCellSize), new SpatialGrid(gridCellSize), new SpatialGrid(gridCellSize) };
+    }
+
+    /**
+     * copies the positions as the newest frame, and sorts them into the frame's grid,
+     * only called from the layout thread
+     *
+     * @param positions
+     * @param view
+     *            the items the positions belong to
+     */
+    public void publish(LayoutPositions positions, ViewGraph view) {
+        LayoutPositions copy = buffers[back];
+        copy.copyFrom(positions);
+        grids[back].build(copy.size(), copy.getX(), copy.getY(), copy.getZ());
+        views[back] = view;
+        back = shared.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * returns the newest published frame, which stays unchanged until the next call,
+     * only called from the render thread
+     *
+     * @return
+     */
+    public LayoutPositions acquire() {
+        if ((shared.get() & FRESH) != 0) {
+            front = shared.getAndSet(front) & INDEX_MASK;
+            ++frame;
+        }
+        return buffers[front];
+    }
+
+    /**
+     * @return the items of the frame last returned by {@link #acquire()}, or null before
+     *         anything was published, only called from the render thread
+     */
+    public ViewGraph getView() {
+        return views[front];
+    }
+
+    /**
+     * @return the grid over the positions of the frame last returned by
+     *         {@link #acquire()}, only called from the render thread
+     */
+    public SpatialGrid getGrid() {
+        return grids[front];
+    }
+
+    /**
+     * @return a count of the new frames {@link #acquire()} has returned, so the render
+     *         thread can tell whether the positions moved since it last looked
+     */
+    public int getFrame() {
+        return frame;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * hands out permits at a fixed rate, shared by all threads that acquire from it
+ */
+public class RateLimiter {
+
+    private long intervalNanos;
+    private long nextPermitNanos;
+
+    /**
+     * @param permitsPerSecond must be greater than zero
+     */
+    public RateLimiter(double permitsPerSecond) {
+        intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        nextPermitNanos = System.nanoTime();
+    }
+
+    /**
+     * blocks until the next permit is due
+     *
+     * @throws InterruptedException
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (nextPermitNanos < now) {
+                nextPermitNanos = now;
+            }
+            waitNanos = nextPermitNanos - now;
+            nextPermitNanos += intervalNanos;
+        }
+
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import java.util.Arrays;
+
+/**
+ * a list of relationships, as found by parsing one classpath root. Relationships may be
+ * recorded from several threads at once, and are passed on to an optional target sink
+ * as they arrive.
+ */
+public class RecordedEdges implements RelationshipSink {
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final RelationshipType[] TYPES = RelationshipType.values();
+
+    private RelationshipSink target;
+    private String[] fromNames = new String[INITIAL_CAPACITY];
+    private String[] toNames = new String[INITIAL_CAPACITY];
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private int size;
+
+    public RecordedEdges() {
+        this(null);
+    }
+
+    public RecordedEdges(RelationshipSink targetSink) {
+        target = targetSink;
+    }
+
+    @Override
+    public void addRelationship(String clsName1, String clsName2, RelationshipType relationshipType) {
+        synchronized (this) {
+            record(clsName1, clsName2, relationshipType);
+        }
+
+        if (target != null) {
+            target.addRelationship(clsName1, clsName2, relationshipType);
+        }
+    }
+
+    @Override
+    public void addRelationships(EdgeBuffer edges) {
+        synchronized (this) {
+            for (int i = 0; i < edges.size(); ++i) {
+                record(edges.getLower(i), edges.getHigher(i), edges.getType(i));
+            }
+        }
+
+        if (target != null) {
+            target.addRelationships(edges);
+        }
+    }
+
+    private void record(String clsName1, String clsName2, RelationshipType relationshipType) {
+        if (size == types.length) {
+            int capacity = size * 2;
+            fromNames = Arrays.copyOf(fromNames, capacity);
+            toNames = Arrays.copyOf(toNames, capacity);
+            types = Arrays.copyOf(types, capacity);
+        }
+
+        fromNames[size] = clsName1;
+        toNames[size] = clsName2;
+        types[size] = (byte) relationshipType.ordinal();
+        ++size;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized String getFrom(int index) {
+        return fromNames[index];
+    }
+
+    public synchronized String getTo(int index) {
+        return toNames[index];
+    }
+
+    public synchronized RelationshipType getType(int index) {
+        return TYPES[types[index]];
+    }
+
+    /**
+     * passes every recorded relationship, in recorded order, to the given sink
+     *
+     * @param sink
+     */
+    public void replay(RelationshipSink sink) {
+        String[] from;
+        String[] to;
+        byte[] relationshipTypes;
+        int count;
+        synchronized (this) {
+            from = fromNames;
+            to = toNames;
+            relationshipTypes = types;
+            count = size;
+        }
+
+        for (int i = 0; i < count; ++i) {
+            sink.addRelationship(from[i], to[i], TYPES[relationshipTypes[i]]);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+/**
+ * receives the relationships that are found while parsing classes
+ */
+public interface RelationshipSink {
+
+    void addRelationship(String clsName1, String clsName2, RelationshipType relationshipType);
+
+    /**
+     * receives a batch of relationships at once, which by default are added one by one
+     *
+     * @param edges
+     */
+    default void addRelationships(EdgeBuffer edges) {
+        edges.replay(this);
+    }
+}
@@ -18,7 +18,9 @@
 package com.mebigfatguy.classgraph;
 
 public enum RelationshipType {
-	INHERITANCE(4.0f), INTERFACE(3.0f), INNER(2.0f), CONTAINMENT(1.0f), UNKNOWN(0.0f);
+	INHERITANCE(4.0f), INTERFACE(3.0f), INNER(2.0f), CONTAINMENT(1.0f), UNKNOWN(0.0f),
+	SIGNATURE(0.5f), INVOCATION(0.5f), INSTANTIATION(1.0f), CAST(0.25f), ANNOTATION(0.25f), GENERIC(0.25f),
+	FIELD_ACCESS(0.5f), TYPE_REFERENCE(0.25f), CATCH(0.25f);
 
 	private float relationshipWeight;
 
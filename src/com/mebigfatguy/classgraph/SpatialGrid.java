@@ -0,0 +1,416 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import java.util.Arrays;
+
+/**
+ * a uniform grid over a set of points, rebuilt in linear time by counting the points
+ * per cell and then sorting them into one array, cell by cell. The cells are at least
+ * as large as asked for, and grow when the points are so spread out that the grid
+ * would have more than about two cells per point, so a stray point never makes the
+ * grid huge. Finding the points near a spot only looks at the few cells around it.
+ * Like the octree, the position arrays are referenced, not copied.
+ */
+public class SpatialGrid {
+
+    private static final int MIN_CELLS = 64;
+    private static final float GROWTH = 1.26f;
+
+    /**
+     * is told about each point found by a query
+     */
+    public interface Visitor {
+        void visit(int point);
+    }
+
+    private float minCellSize;
+    private float cellSize;
+    private float originX, originY, originZ;
+    private int dimX, dimY, dimZ;
+    private int[] cellStart = new int[0];
+    private int[] points = new int[0];
+    private int[] pointCell = new int[0];
+    private int count;
+    private float[] pointX;
+    private float[] pointY;
+    private float[] pointZ;
+
+    /**
+     * @param minimumCellSize
+     *            the smallest cell edge, usually the longest distance queried for
+     */
+    public SpatialGrid(float minimumCellSize) {
+        minCellSize = minimumCellSize;
+    }
+
+    /**
+     * sorts the first count points of the arrays into the grid
+     *
+     * @param pointCount
+     * @param x
+     * @param y
+     * @param z
+     * @throws IllegalArgumentException
+     *             if a coordinate is infinite or not a number
+     */
+    public void build(int pointCount, float[] x, float[] y, float[] z) {
+        count = pointCount;
+        pointX = x;
+        pointY = y;
+        pointZ = z;
+        if (count == 0) {
+            dimX = dimY = dimZ = 0;
+            return;
+        }
+
+        float minX = x[0], minY = y[0], minZ = z[0];
+        float maxX = minX, maxY = minY, maxZ = minZ;
+        for (int i = 1; i < count; ++i) {
+            minX = Math.min(minX, x[i]);
+            minY = Math.min(minY, y[i]);
+            minZ = Math.min(minZ, z[i]);
+            maxX = Math.max(maxX, x[i]);
+            maxY = Math.max(maxY, y[i]);
+            maxZ = Math.max(maxZ, z[i]);
+        }
+        if (!Float.isFinite(maxX - minX) || !Float.isFinite(maxY - minY) || !Float.isFinite(maxZ - minZ)) {
+            count = 0;
+            dimX = dimY = dimZ = 0;
+            throw new IllegalArgumentException("Points span a non finite extent");
+        }
+        originX = minX;
+        originY = minY;
+        originZ = minZ;
+
+        long maxCells = Math.max(MIN_CELLS, count * 2L);
+        cellSize = minCellSize;
+        while (true) {
+            dimX = (int) ((maxX - minX) / cellSize) + 1;
+            dimY = (int) ((maxY - minY) / cellSize) + 1;
+            dimZ = (int) ((maxZ - minZ) / cellSize) + 1;
+            if (((long) dimX * dimY * dimZ) <= maxCells) {
+                break;
+            }
+            cellSize *= GROWTH;
+        }
+
+        int cells = dimX * dimY * dimZ;
+        if (cellStart.length < (cells + 1)) {
+            cellStart = new int[cells + 1];
+        } else {
+            Arrays.fill(cellStart, 0, cells + 1, 0);
+        }
+        if (points.length < count) {
+            points = new int[count];
+            pointCell = new int[count];
+        }
+
+        for (int i = 0; i < count; ++i) {
+            int cell = cellIndex(cellX(x[i]), cellY(y[i]), cellZ(z[i]));
+            pointCell[i] = cell;
+            ++cellStart[cell + 1];
+        }
+        for (int c = 0; c < cells; ++c) {
+            cellStart[c + 1] += cellStart[c];
+        }
+
+        // fill each cell from its end backwards, so that cellStart ends up as the starts
+        for (int i = count - 1; i >= 0; --i) {
+            int cell = pointCell[i];
+            points[--cellStart[cell + 1]] = i;
+        }
+        System.arraycopy(cellStart, 1, cellStart, 0, cells);
+        cellStart[cells] = count;
+    }
+
+    public int cellX(float x) {
+        return clamp((int) ((x - originX) / cellSize), dimX);
+    }
+
+    public int cellY(float y) {
+        return clamp((int) ((y - originY) / cellSize), dimY);
+    }
+
+    public int cellZ(float z) {
+        return clamp((int) ((z - originZ) / cellSize), dimZ);
+    }
+
+    public int cellIndex(int cx, int cy, int cz) {
+        return (((cz * dimY) + cy) * dimX) + cx;
+    }
+
+    public float getCellSize() {
+        return cellSize;
+    }
+
+    public int getDimX() {
+        return dimX;
+    }
+
+    public int getDimY() {
+        return dimY;
+    }
+
+    public int getDimZ() {
+        return dimZ;
+    }
+
+    /**
+     * @return the first slot of the cell's points, to be read with {@link #getPoint(int)}
+     */
+    public int getCellStart(int cell) {
+        return cellStart[cell];
+    }
+
+    /**
+     * @return the slot after the last one of the cell's points
+     */
+    public int getCellEnd(int cell) {
+        return cellStart[cell + 1];
+    }
+
+    public int getPoint(int slot) {
+        return points[slot];
+    }
+
+    /**
+     * tells the visitor about every point within the radius of the given spot
+     */
+    public void forEachInSphere(float x, float y, float z, float radius, Visitor visitor) {
+        if (count == 0) {
+            return;
+        }
+
+        float radiusSq = radius * radius;
+        int x0 = cellX(x - radius), x1 = cellX(x + radius);
+        int y0 = cellY(y - radius), y1 = cellY(y + radius);
+        int z0 = cellZ(z - radius), z1 = cellZ(z + radius);
+        for (int cz = z0; cz <= z1; ++cz) {
+            for (int cy = y0; cy <= y1; ++cy) {
+                for (int cx = x0; cx <= x1; ++cx) {
+                    int cell = cellIndex(cx, cy, cz);
+                    for (int s = cellStart[cell]; s < cellStart[cell + 1]; ++s) {
+                        int p = points[s];
+                        if (VectorMath.distanceSquared(x, y, z, pointX[p], pointY[p], pointZ[p]) <= radiusSq) {
+                            visitor.visit(p);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * tells the visitor about the points of every cell that may be on screen. Blocks of
+     * cells are tested against the view as a whole, and only split in two while they
+     * are partly on screen, so the cells off screen cost next to nothing. The points of
+     * a cell on screen may still be off screen themselves.
+     *
+     * @param view
+     * @param margin
+     *            how far beyond its point anything drawn for a point reaches
+     * @param visitor
+     */
+    public void forEachInView(ViewFrustum view, float margin, Visitor visitor) {
+        if (count == 0) {
+            return;
+        }
+        visitBlock(view, margin, visitor, 0, 0, 0, dimX, dimY, dimZ);
+    }
+
+    /**
+     * visits the cells from x0, y0, z0 up to, but not including, x1, y1, z1
+     */
+    private void visitBlock(ViewFrustum view, float margin, Visitor visitor, int x0, int y0, int z0, int x1, int y1, int z1) {
+        float half = cellSize * 0.5f;
+        float halfX = (x1 - x0) * half;
+        float halfY = (y1 - y0) * half;
+        float halfZ = (z1 - z0) * half;
+        float radius = VectorMath.length(halfX, halfY, halfZ) + margin;
+        if (!view.isVisible(originX + ((x0 + x1) * half), originY + ((y0 + y1) * half), originZ + ((z0 + z1) * half), radius)) {
+            return;
+        }
+
+        int sizeX = x1 - x0;
+        int sizeY = y1 - y0;
+        int sizeZ = z1 - z0;
+        if ((sizeX == 1) && (sizeY == 1) && (sizeZ == 1)) {
+            int cell = cellIndex(x0, y0, z0);
+            for (int s = cellStart[cell]; s < cellStart[cell + 1]; ++s) {
+                visitor.visit(points[s]);
+            }
+        } else if ((sizeX >= sizeY) && (sizeX >= sizeZ)) {
+            int split = x0 + (sizeX >>> 1);
+            visitBlock(view, margin, visitor, x0, y0, z0, split, y1, z1);
+            visitBlock(view, margin, visitor, split, y0, z0, x1, y1, z1);
+        } else if (sizeY >= sizeZ) {
+            int split = y0 + (sizeY >>> 1);
+            visitBlock(view, margin, visitor, x0, y0, z0, x1, split, z1);
+            visitBlock(view, margin, visitor, x0, split, z0, x1, y1, z1);
+        } else {
+            int split = z0 + (sizeZ >>> 1);
+            visitBlock(view, margin, visitor, x0, y0, z0, x1, y1, split);
+            visitBlock(view, margin, visitor, x0, y0, split, x1, y1, z1);
+        }
+    }
+
+    /**
+     * @return the point nearest to the given spot that is no further than maxDistance, or
+     *         -1 if there is none
+     */
+    public int nearest(float x, float y, float z, float maxDistance) {
+        if (count == 0) {
+            return -1;
+        }
+
+        int best = -1;
+        float bestSq = maxDistance * maxDistance;
+        int x0 = cellX(x - maxDistance), x1 = cellX(x + maxDistance);
+        int y0 = cellY(y - maxDistance), y1 = cellY(y + maxDistance);
+        int z0 = cellZ(z - maxDistance), z1 = cellZ(z + maxDistance);
+        for (int cz = z0; cz <= z1; ++cz) {
+            for (int cy = y0; cy <= y1; ++cy) {
+                for (int cx = x0; cx <= x1; ++cx) {
+                    int cell = cellIndex(cx, cy, cz);
+                    for (int s = cellStart[cell]; s < cellStart[cell + 1]; ++s) {
+                        int p = points[s];
+                        float distSq = VectorMath.distanceSquared(x, y, z, pointX[p], pointY[p], pointZ[p]);
+                        if ((distSq < bestSq) || ((best < 0) && (distSq == bestSq))) {
+                            best = p;
+                            bestSq = distSq;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * finds the first sphere of the given radius around a point that a ray hits. The
+     * ray walks the grid cell by cell, looking at the cells around each cell it passes,
+     * so only points near the ray are tested, and the walk stops once no closer hit can
+     * follow. The radius must not be larger than {@link #getCellSize()}.
+     *
+     * @param ox
+     * @param oy
+     * @param oz
+     * @param dx
+     *            the direction of the ray, which must be a unit vector
+     * @param dy
+     * @param dz
+     * @param radius
+     * @return the point hit first, or -1 if the ray misses them all
+     */
+    public int raycast(float ox, float oy, float oz, float dx, float dy, float dz, float radius) {
+        if (count == 0) {
+            return -1;
+        }
+
+        // clip the ray to the grid, grown by a cell so the walk also passes outside cells
+        float[] origin = { ox, oy, oz };
+        float[] direction = { dx, dy, dz };
+        float[] gridMin = { originX - cellSize, originY - cellSize, originZ - cellSize };
+        int[] dims = { dimX, dimY, dimZ };
+        float enter = 0.0f;
+        float exit = Float.POSITIVE_INFINITY;
+        for (int a = 0; a < 3; ++a) {
+            float max = gridMin[a] + ((dims[a] + 2) * cellSize);
+            if (direction[a] == 0.0f) {
+                if ((origin[a] < gridMin[a]) || (origin[a] > max)) {
+                    return -1;
+                }
+            } else {
+                float t1 = (gridMin[a] - origin[a]) / direction[a];
+                float t2 = (max - origin[a]) / direction[a];
+                enter = Math.max(enter, Math.min(t1, t2));
+                exit = Math.min(exit, Math.max(t1, t2));
+            }
+        }
+        if (enter > exit) {
+            return -1;
+        }
+
+        int[] cell = new int[3];
+        int[] step = new int[3];
+        float[] next = new float[3];
+        float[] delta = new float[3];
+        float[] cellOrigin = { originX, originY, originZ };
+        for (int a = 0; a < 3; ++a) {
+            float p = origin[a] + (direction[a] * enter);
+            cell[a] = (int) Math.floor((p - cellOrigin[a]) / cellSize);
+            if (direction[a] > 0.0f) {
+                step[a] = 1;
+                next[a] = ((cellOrigin[a] + ((cell[a] + 1) * cellSize)) - origin[a]) / direction[a];
+                delta[a] = cellSize / direction[a];
+            } else if (direction[a] < 0.0f) {
+                step[a] = -1;
+                next[a] = ((cellOrigin[a] + (cell[a] * cellSize)) - origin[a]) / direction[a];
+                delta[a] = -cellSize / direction[a];
+            } else {
+                next[a] = Float.POSITIVE_INFINITY;
+                delta[a] = Float.POSITIVE_INFINITY;
+            }
+        }
+
+        int best = -1;
+        float bestT = Float.POSITIVE_INFINITY;
+        float radiusSq = radius * radius;
+        float reach = 4.0f * cellSize;
+        float t = enter;
+        while ((t <= exit) && (t <= (bestT + reach))) {
+            for (int cz = Math.max(0, cell[2] - 1); cz <= Math.min(dimZ - 1, cell[2] + 1); ++cz) {
+                for (int cy = Math.max(0, cell[1] - 1); cy <= Math.min(dimY - 1, cell[1] + 1); ++cy) {
+                    for (int cx = Math.max(0, cell[0] - 1); cx <= Math.min(dimX - 1, cell[0] + 1); ++cx) {
+                        int c = cellIndex(cx, cy, cz);
+                        for (int s = cellStart[c]; s < cellStart[c + 1]; ++s) {
+                            int p = points[s];
+                            float px = pointX[p] - ox;
+                            float py = pointY[p] - oy;
+                            float pz = pointZ[p] - oz;
+                            float along = (px * dx) + (py * dy) + (pz * dz);
+                            float offSq = ((px * px) + (py * py) + (pz * pz)) - (along * along);
+                            if ((along > 0.0f) && (offSq <= radiusSq)) {
+                                float hit = along - (float) Math.sqrt(radiusSq - offSq);
+                                if (hit < bestT) {
+                                    best = p;
+                                    bestT = hit;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+
+            int a = (next[0] < next[1]) ? ((next[0] < next[2]) ? 0 : 2) : ((next[1] < next[2]) ? 1 : 2);
+            t = next[a];
+            next[a] += delta[a];
+            cell[a] += step[a];
+        }
+
+        return best;
+    }
+
+    private static int clamp(int c, int dim) {
+        if (c < 0) {
+            return 0;
+        }
+        return (c >= dim) ? dim - 1 : c;
+    }
+}
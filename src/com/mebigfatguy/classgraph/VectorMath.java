@@ -0,0 +1,85 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+/**
+ * scalar and out parameter vector operations, so that the layout never has to
+ * allocate a vector to hand back a result
+ */
+public final class VectorMath {
+
+    private VectorMath() {
+    }
+
+    public static float distanceSquared(float x1, float y1, float z1, float x2, float y2, float z2) {
+        float dx = x1 - x2;
+        float dy = y1 - y2;
+        float dz = z1 - z2;
+
+        return (dx * dx) + (dy * dy) + (dz * dz);
+    }
+
+    public static float length(float x, float y, float z) {
+        return (float) Math.sqrt((x * x) + (y * y) + (z * z));
+    }
+
+    /**
+     * stores a random unit vector in out
+     *
+     * @param random
+     * @param out
+     */
+    public static void randomDirection(LayoutRandom random, float[] out) {
+        float len;
+        do {
+            out[0] = random.nextFloat(-5.0f, 5.0f);
+            out[1] = random.nextFloat(-5.0f, 5.0f);
+            out[2] = random.nextFloat(-5.0f, 5.0f);
+            len = length(out[0], out[1], out[2]);
+        } while (len == 0.0f);
+
+        out[0] /= len;
+        out[1] /= len;
+        out[2] /= len;
+    }
+
+    /**
+     * stores the unit vector pointing from one point to another in out, or a random
+     * direction if the two points are the same
+     *
+     * @param from
+     * @param to
+     * @param random
+     * @param out
+     */
+    public static void unitVector(float[] from, float[] to, LayoutRandom random, float[] out) {
+        float x = to[0] - from[0];
+        float y = to[1] - from[1];
+        float z = to[2] - from[2];
+        float len = length(x, y, z);
+
+        if (len == 0.0f) {
+            randomDirection(random, out);
+            return;
+        }
+
+        out[0] = x / len;
+        out[1] = y / len;
+        out[2] = z / len;
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+/**
+ * the camera of one frame, looking from the eye towards a target with y up, used to
+ * skip nodes and labels that can't be seen, to measure how far away nodes are, and to
+ * turn points on the screen into rays. The instance is reused from frame to frame.
+ */
+public class ViewFrustum {
+
+    private float eyeX, eyeY, eyeZ;
+    private float forwardX, forwardY, forwardZ;
+    private float rightX, rightY, rightZ;
+    private float upX, upY, upZ;
+    private float tanY;
+    private float tanX;
+    private float marginY;
+    private float marginX;
+    private float near;
+    private float far;
+    private int viewportHeight;
+
+    /**
+     * @param eye
+     * @param target
+     *            the point the eye looks at
+     * @param fieldOfView
+     *            the vertical field of view in degrees
+     * @param aspect
+     *            width over height
+     * @param nearPlane
+     * @param farPlane
+     * @param height
+     *            of the viewport in pixels
+     */
+    public void set(float[] eye, float[] target, float fieldOfView, float aspect, float nearPlane, float farPlane, int height) {
+        eyeX = eye[0];
+        eyeY = eye[1];
+        eyeZ = eye[2];
+
+        forwardX = target[0] - eyeX;
+        forwardY = target[1] - eyeY;
+        forwardZ = target[2] - eyeZ;
+        float length = VectorMath.length(forwardX, forwardY, forwardZ);
+        if (length == 0.0f) {
+            forwardX = 0.0f;
+            forwardY = 0.0f;
+            forwardZ = -1.0f;
+        } else {
+            forwardX /= length;
+            forwardY /= length;
+            forwardZ /= length;
+        }
+
+        // right = forward x (0, 1, 0), up = right x forward
+        rightX = -forwardZ;
+        rightY = 0.0f;
+        rightZ = forwardX;
+        float rightLength = VectorMath.length(rightX, rightY, rightZ);
+        if (rightLength == 0.0f) {
+            rightX = 1.0f;
+            rightZ = 0.0f;
+        } else {
+            rightX /= rightLength;
+            rightZ /= rightLength;
+        }
+
+        upX = (rightY * forwardZ) - (rightZ * forwardY);
+        upY = (rightZ * forwardX) - (rightX * forwardZ);
+        upZ = (rightX * forwardY) - (rightY * forwardX);
+
+        tanY = (float) Math.tan(Math.toRadians(fieldOfView / 2.0));
+        tanX = tanY * aspect;
+        marginY = (float) Math.sqrt(1.0 + (tanY * tanY));
+        marginX = (float) Math.sqrt(1.0 + (tanX * tanX));
+        near = nearPlane;
+        far = farPlane;
+        viewportHeight = height;
+    }
+
+    /**
+     * @return the distance of the point in front of the eye, along the view direction
+     */
+    public float depth(float x, float y, float z) {
+        return ((x - eyeX) * forwardX) + ((y - eyeY) * forwardY) + ((z - eyeZ) * forwardZ);
+    }
+
+    /**
+     * @return whether any part of the sphere at the given point may be on screen
+     */
+    public boolean isVisible(float x, float y, float z, float radius) {
+        float dx = x - eyeX;
+        float dy = y - eyeY;
+        float dz = z - eyeZ;
+
+        float d = (dx * forwardX) + (dy * forwardY) + (dz * forwardZ);
+        if ((d < (near - radius)) || (d > (far + radius))) {
+            return false;
+        }
+
+        float horizontal = Math.abs((dx * rightX) + (dy * rightY) + (dz * rightZ));
+        if (horizontal > ((d * tanX) + (radius * marginX))) {
+            return false;
+        }
+
+        float vertical = Math.abs((dx * upX) + (dy * upY) + (dz * upZ));
+        return vertical <= ((d * tanY) + (radius * marginY));
+    }
+
+    /**
+     * @return how far from the center of the screen the point appears, as the squared
+     *         tangent of its angle to the view direction, or infinity if it is not in
+     *         front of the eye
+     */
+    public float offCenter(float x, float y, float z) {
+        float dx = x - eyeX;
+        float dy = y - eyeY;
+        float dz = z - eyeZ;
+
+        float d = (dx * forwardX) + (dy * forwardY) + (dz * forwardZ);
+        if (d < near) {
+            return Float.POSITIVE_INFINITY;
+        }
+
+        float horizontal = (dx * rightX) + (dy * rightY) + (dz * rightZ);
+        float vertical = (dx * upX) + (dy * upY) + (dz * upZ);
+        return ((horizontal * horizontal) + (vertical * vertical)) / (d * d);
+    }
+
+    /**
+     * stores the direction of the ray from the eye through a point on the screen
+     *
+     * @param screenX
+     *            from -1 at the left edge to 1 at the right edge
+     * @param screenY
+     *            from -1 at the bottom edge to 1 at the top edge
+     * @param direction
+     *            receives the unit vector
+     */
+    public void ray(float screenX, float screenY, float[] direction) {
+        float h = screenX * tanX;
+        float v = screenY * tanY;
+        float x = forwardX + (rightX * h) + (upX * v);
+        float y = forwardY + (rightY * h) + (upY * v);
+        float z = forwardZ + (rightZ * h) + (upZ * v);
+        float length = VectorMath.length(x, y, z);
+        direction[0] = x / length;
+        direction[1] = y / length;
+        direction[2] = z / length;
+    }
+
+    /**
+     * @return how many pixels one unit covers at the given depth
+     */
+    public float pixelsPerUnit(float depth) {
+        return viewportHeight / (2.0f * tanY * Math.max(depth, near));
+    }
+
+    /**
+     * @return the focal length in pixels, how many pixels one unit covers at a depth of
+     *         one, from the field of view the frame was set up with
+     */
+    public float getFocalLength() {
+        return viewportHeight / (2.0f * tanY);
+    }
+
+    public int getViewportHeight() {
+        return viewportHeight;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+/**
+ * an immutable snapshot of what the display shows: one item per collapsed package and
+ * one per class in an expanded package, with the relationships between them summed into
+ * a {@link CompactGraph}. The layout positions of the display are indexed by item.
+ */
+public class ViewGraph {
+
+    private CompactGraph graph;
+    private int[] itemOf;
+    private String[] labels;
+    private String[] packages;
+    private ClassType[] types;
+    private boolean[] packageItems;
+    private int[] firstClasses;
+    private long expansion;
+
+    ViewGraph(CompactGraph itemGraph, int[] classItems, String[] itemLabels, String[] itemPackages, ClassType[] itemTypes, boolean[] isPackage,
+            int[] itemFirstClasses, long expansionCount) {
+        graph = itemGraph;
+        itemOf = classItems;
+        labels = itemLabels;
+        packages = itemPackages;
+        types = itemTypes;
+        packageItems = isPackage;
+        firstClasses = itemFirstClasses;
+        expansion = expansionCount;
+    }
+
+    public CompactGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return the number of items
+     */
+    public int size() {
+        return graph.getNodeCount();
+    }
+
+    /**
+     * @return the number of classes the items stand for
+     */
+    public int getClassCount() {
+        return itemOf.length;
+    }
+
+    /**
+     * @param classIndex
+     *            the index of a class node
+     * @return the item that shows the class
+     */
+    public int getItem(int classIndex) {
+        return itemOf[classIndex];
+    }
+
+    public String getLabel(int item) {
+        return labels[item];
+    }
+
+    /**
+     * @param item
+     * @return the package of the item, or of the class it shows
+     */
+    public String getPackage(int item) {
+        return packages[item];
+    }
+
+    public ClassType getType(int item) {
+        return types[item];
+    }
+
+    public boolean isPackage(int item) {
+        return packageItems[item];
+    }
+
+    /**
+     * @param item
+     * @return the index of the class the item shows, or of the first class of the
+     *         package it shows
+     */
+    public int getFirstClass(int item) {
+        return firstClasses[item];
+    }
+
+    /**
+     * @return a number that changes whenever packages are expanded or collapsed. Views
+     *         with the same number list the same items in the same order, with later
+     *         views only adding items at the end.
+     */
+    public long getExpansion() {
+        return expansion;
+    }
+}
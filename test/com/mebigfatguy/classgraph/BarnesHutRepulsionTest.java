@@ -0,0 +1,93 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BarnesHutRepulsionTest {
+
+    private static final float SHORT_REPEL_DISTANCE = 19.0f;
+    private static final float LONG_REPEL_DISTANCE = 51.0f;
+
+    @Test
+    public void exactThetaMatchesPairwiseRepulsion() {
+        int count = 300;
+        Random random = new Random(42);
+        float[] x = new float[count];
+        float[] y = new float[count];
+        float[] z = new float[count];
+        for (int i = 0; i < count; ++i) {
+            x[i] = random.nextFloat() * 200.0f;
+            y[i] = random.nextFloat() * 200.0f;
+            z[i] = random.nextFloat() * 200.0f;
+        }
+
+        Set<Long> edges = new HashSet<>();
+        for (int e = 0; e < count * 2; ++e) {
+            int a = random.nextInt(count);
+            int b = random.nextInt(count);
+            edges.add(Long.valueOf(pair(a, b)));
+        }
+        BarnesHutRepulsion.Relations relations = (a, b) -> edges.contains(Long.valueOf(pair(a, b)));
+
+        BarnesHutRepulsion repulsion = new BarnesHutRepulsion(0.0f, SHORT_REPEL_DISTANCE, LONG_REPEL_DISTANCE);
+        repulsion.build(count, x, y, z);
+        float[] dx = new float[count];
+        float[] dy = new float[count];
+        float[] dz = new float[count];
+        int[] stack = new int[BarnesHutRepulsion.stackSize()];
+        LayoutRandom layoutRandom = new LayoutRandom(0L);
+        for (int i = 0; i < count; ++i) {
+            repulsion.accumulate(i, relations, dx, dy, dz, stack, layoutRandom);
+        }
+
+        float longSquared = LONG_REPEL_DISTANCE * LONG_REPEL_DISTANCE;
+        for (int i = 0; i < count; ++i) {
+            double ex = 0.0, ey = 0.0, ez = 0.0;
+            for (int j = 0; j < count; ++j) {
+                if (j == i) {
+                    continue;
+                }
+                float ox = x[i] - x[j];
+                float oy = y[i] - y[j];
+                float oz = z[i] - z[j];
+                float distSq = (ox * ox) + (oy * oy) + (oz * oz);
+                float speed = BarnesHutRepulsion.repelSpeed(relations.isRelated(i, j), distSq, SHORT_REPEL_DISTANCE, longSquared);
+                if (speed > 0.0f) {
+                    double scale = speed / Math.sqrt(distSq);
+                    ex += ox * scale;
+                    ey += oy * scale;
+                    ez += oz * scale;
+                }
+            }
+
+            Assert.assertEquals("x of " + i, ex, dx[i], 1.0e-3);
+            Assert.assertEquals("y of " + i, ey, dy[i], 1.0e-3);
+            Assert.assertEquals("z of " + i, ez, dz[i], 1.0e-3);
+        }
+    }
+
+    private static long pair(int a, int b) {
+        return (((long) Math.min(a, b)) << 32) | Math.max(a, b);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClassDirectoryWatcherTest {
+
+    @Test
+    public void failedReparseLeavesNoRelationshipsBehind() throws IOException {
+        byte[] classBytes;
+        try (InputStream is = GraphBuilder.class.getResourceAsStream("GraphBuilder.class")) {
+            classBytes = is.readAllBytes();
+        }
+
+        ClassNodes nodes = new ClassNodes(name -> ClassType.APPLICATION_CLASS);
+        ClassParser parser = new ClassParser(ExtractionLevel.CODE, nodes.getNameTable());
+        byte[] truncated = truncateAfterSomeRelationships(parser, classBytes);
+
+        Path dir = Files.createTempDirectory("classgraph");
+        Path classFile = dir.resolve("GraphBuilder.class").toAbsolutePath();
+        ClassDirectoryWatcher watcher = new ClassDirectoryWatcher(nodes, parser);
+        try {
+            Files.write(classFile, classBytes);
+            watcher.reparse(classFile);
+            Map<String, Float> parsed = weights(nodes);
+            Assert.assertFalse(parsed.isEmpty());
+
+            // caught while the compiler is still writing the file, and again, still half written
+            Files.write(classFile, truncated);
+            watcher.reparse(classFile);
+            watcher.reparse(classFile);
+            Assert.assertEquals(new HashMap<String, Float>(), weights(nodes));
+
+            Files.write(classFile, classBytes);
+            watcher.reparse(classFile);
+            Assert.assertEquals(parsed, weights(nodes));
+        } finally {
+            watcher.terminate();
+            Files.deleteIfExists(classFile);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    /**
+     * cuts the class short so that parsing it fails, but only after it found some
+     * relationships
+     */
+    private static byte[] truncateAfterSomeRelationships(ClassParser parser, byte[] classBytes) {
+        for (int length = classBytes.length - 1; length > (classBytes.length / 2); --length) {
+            byte[] truncated = Arrays.copyOf(classBytes, length);
+            RecordedEdges edges = new RecordedEdges();
+            try {
+                parser.parse(truncated, edges);
+            } catch (RuntimeException e) {
+                if (edges.size() > 0) {
+                    return truncated;
+                }
+            }
+        }
+        throw new AssertionError("No truncation of the class fails after finding relationships");
+    }
+
+    private static Map<String, Float> weights(ClassNodes nodes) {
+        Map<String, Float> weights = new HashMap<>();
+        for (ClassNode node : nodes) {
+            for (Map.Entry<String, EdgeWeight> relationship : node.getRelationships().entrySet()) {
+                float weight = relationship.getValue().get();
+                if (weight != 0.0f) {
+                    weights.put(node.getFQCN() + " -> " + relationship.getKey(), Float.valueOf(weight));
+                }
+            }
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClassNameIndexTest {
+
+    @Test
+    public void findsByQualifiedAndSimpleName() {
+        ClassNodes nodes = new ClassNodes(name -> ClassType.APPLICATION_CLASS);
+        nodes.addRelationship("com.example.Widget", "com.example.WidgetFactory", RelationshipType.CONTAINMENT);
+        nodes.addRelationship("com.example.Widget", "org.other.Gadget", RelationshipType.CONTAINMENT);
+        ClassNameIndex index = new ClassNameIndex(nodes);
+
+        Assert.assertEquals(List.of("com.example.Widget", "com.example.WidgetFactory"), names(nodes, index, "com.example.w"));
+        Assert.assertEquals(List.of("com.example.Widget", "com.example.WidgetFactory"), names(nodes, index, "widget"));
+        Assert.assertEquals(List.of("com.example.WidgetFactory"), names(nodes, index, "WidgetF"));
+        Assert.assertEquals(List.of("org.other.Gadget"), names(nodes, index, "gad"));
+        Assert.assertEquals(List.of("org.other.Gadget"), names(nodes, index, "org."));
+        Assert.assertEquals(0, index.count("example"));
+        Assert.assertEquals(-1, index.get("gad", 1));
+    }
+
+    @Test
+    public void mergesClassesAddedBetweenSearches() {
+        Random random = new Random(3);
+        ClassNodes nodes = new ClassNodes(name -> ClassType.APPLICATION_CLASS);
+        ClassNameIndex index = new ClassNameIndex(nodes);
+        String[] prefixes = { "", "p1", "p2.c", "ca", "cb1", "root" };
+        for (int round = 0; round < 20; ++round) {
+            for (int i = random.nextInt(40); i > 0; --i) {
+                String name = "p" + random.nextInt(4) + ".C" + (char) ('a' + random.nextInt(3)) + random.nextInt(30);
+                nodes.addRelationship(name, "p0.Root", RelationshipType.CONTAINMENT);
+            }
+
+            ClassNameIndex fresh = new ClassNameIndex(nodes);
+            for (String prefix : prefixes) {
+                Assert.assertEquals("round " + round + ", prefix " + prefix, matches(fresh, prefix), matches(index, prefix));
+            }
+        }
+    }
+
+    private static List<String> names(ClassNodes nodes, ClassNameIndex index, String prefix) {
+        List<String> names = new ArrayList<>();
+        for (int cls : matches(index, prefix)) {
+            names.add(nodes.getNode(cls).getFQCN());
+        }
+        return names;
+    }
+
+    private static List<Integer> matches(ClassNameIndex index, String prefix) {
+        List<Integer> classes = new ArrayList<>();
+        int count = index.count(prefix);
+        for (int n = 0; n < count; ++n) {
+            classes.add(Integer.valueOf(index.get(prefix, n)));
+        }
+        return classes;
+    }
+}
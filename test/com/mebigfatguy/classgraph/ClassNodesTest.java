@@ -0,0 +1,155 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClassNodesTest {
+
+    private static final int THREADS = 8;
+    private static final int CLASSES = 50;
+    private static final String HUB = "com.example.A";
+
+    @Test
+    public void concurrentAddsSumExactly() throws InterruptedException {
+        int adds = 200000;
+        ClassNodes nodes = new ClassNodes(name -> ClassType.APPLICATION_CLASS);
+        RelationshipType[] types = RelationshipType.values();
+
+        double[][] expected = new double[CLASSES][CLASSES];
+        for (int t = 0; t < THREADS; ++t) {
+            Random random = new Random(t);
+            for (int a = 0; a < adds; ++a) {
+                int c1 = random.nextInt(CLASSES);
+                int c2 = random.nextInt(CLASSES);
+                RelationshipType type = types[random.nextInt(types.length)];
+                if (c1 != c2) {
+                    expected[Math.min(c1, c2)][Math.max(c1, c2)] += type.getWeight();
+                }
+            }
+        }
+
+        runThreads(t -> {
+            Random random = new Random(t);
+            for (int a = 0; a < adds; ++a) {
+                int c1 = random.nextInt(CLASSES);
+                int c2 = random.nextInt(CLASSES);
+                nodes.addRelationship(name(c1), name(c2), types[random.nextInt(types.length)]);
+            }
+        });
+
+        Assert.assertEquals(CLASSES, nodes.size());
+        assertWeights(nodes, expected);
+    }
+
+    @Test
+    public void concurrentRemovesDontLoseAdds() throws InterruptedException {
+        int rounds = 20000;
+        int churns = 4;
+        ClassNodes nodes = new ClassNodes(name -> ClassType.APPLICATION_CLASS);
+
+        // all threads go through the same relationships, adding and taking back, so each
+        // keeps dropping to nothing, while one thread also adds to it for good
+        runThreads(t -> {
+            for (int r = 0; r < rounds; ++r) {
+                String other = "com.example.D" + r;
+                for (int c = 0; c < churns; ++c) {
+                    nodes.addRelationship(HUB, other, RelationshipType.CONTAINMENT);
+                    if ((r % THREADS) == t) {
+                        nodes.addRelationship(HUB, other, RelationshipType.INHERITANCE);
+                    }
+                    nodes.removeRelationship(HUB, other, RelationshipType.CONTAINMENT);
+                }
+            }
+        });
+
+        Map<String, ClassNode> byName = new HashMap<>();
+        for (ClassNode node : nodes) {
+            byName.put(node.getFQCN(), node);
+        }
+        ClassNode hub = byName.get(HUB);
+
+        int lost = 0;
+        for (int r = 0; r < rounds; ++r) {
+            float weight = nodes.getAttractionBetween(hub, byName.get("com.example.D" + r));
+            if (weight != (churns * RelationshipType.INHERITANCE.getWeight())) {
+                ++lost;
+            }
+        }
+        Assert.assertEquals("Relationships with lost or extra weight", 0, lost);
+    }
+
+    private interface ThreadBody {
+        void run(int thread);
+    }
+
+    private static void runThreads(ThreadBody body) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for (int t = 0; t < THREADS; ++t) {
+            int thread = t;
+            Thread th = new Thread(() -> {
+                try {
+                    start.await();
+                    body.run(thread);
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            th.start();
+            threads.add(th);
+        }
+
+        start.countDown();
+        for (Thread th : threads) {
+            th.join();
+        }
+        Assert.assertEquals(new ArrayList<Throwable>(), failures);
+    }
+
+    private static void assertWeights(ClassNodes nodes, double[][] expected) {
+        Map<String, ClassNode> byName = new HashMap<>();
+        for (ClassNode node : nodes) {
+            byName.put(node.getFQCN(), node);
+        }
+
+        for (int c1 = 0; c1 < CLASSES; ++c1) {
+            for (int c2 = c1 + 1; c2 < CLASSES; ++c2) {
+                ClassNode node1 = byName.get(name(c1));
+                ClassNode node2 = byName.get(name(c2));
+                float weight = ((node1 == null) || (node2 == null)) ? 0.0f : nodes.getAttractionBetween(node1, node2);
+                Assert.assertEquals(name(c1) + " - " + name(c2), expected[c1][c2], weight, 0.0);
+            }
+        }
+    }
+
+    private static String name(int c) {
+        return String.format("com.example.C%02d", Integer.valueOf(c));
+    }
+}
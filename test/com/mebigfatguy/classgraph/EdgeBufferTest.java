@@ -0,0 +1,65 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EdgeBufferTest {
+
+    @Test
+    public void sortOrdersColumnsTogether() {
+        RelationshipType[] types = RelationshipType.values();
+        Random random = new Random(7);
+        for (int size : new int[] { 0, 1, 15, 17, 1000, 4096 }) {
+            RecordedEdges flushed = new RecordedEdges();
+            EdgeBuffer buffer = new EdgeBuffer(flushed, 8192, new ClassNameTable());
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < size; ++i) {
+                // few names, so that there are many duplicates
+                String name1 = "C" + random.nextInt(20);
+                String name2 = "C" + random.nextInt(20);
+                RelationshipType type = types[random.nextInt(types.length)];
+                buffer.addRelationship(name1, name2, type);
+                int cmp = name1.compareTo(name2);
+                if (cmp != 0) {
+                    expected.add(((cmp < 0) ? name1 + " " + name2 : name2 + " " + name1) + " " + type);
+                }
+            }
+
+            buffer.sort();
+            List<String> sorted = new ArrayList<>();
+            for (int i = 0; i < buffer.size(); ++i) {
+                sorted.add(buffer.getLower(i) + " " + buffer.getHigher(i) + " " + buffer.getType(i));
+                Assert.assertTrue(buffer.getLower(i).compareTo(buffer.getHigher(i)) < 0);
+                if (i > 0) {
+                    int cmp = Integer.compare(buffer.getLowerId(i - 1), buffer.getLowerId(i));
+                    Assert.assertTrue(size + " edges out of order at " + i, (cmp < 0) || ((cmp == 0) && (buffer.getHigherId(i - 1) <= buffer.getHigherId(i))));
+                }
+            }
+
+            expected.sort(null);
+            sorted.sort(null);
+            Assert.assertEquals(expected, sorted);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ForceLayoutTest {
+
+    private static final int WARMUP_TICKS = 200;
+    private static final int MEASURED_TICKS = 100;
+    private static final long MAX_BYTES_PER_TICK = 256;
+
+    @Test
+    public void steadyTicksDontAllocate() {
+        ClassNodes nodes = new ClassNodes(name -> ClassType.APPLICATION_CLASS);
+        for (int i = 1; i < 500; ++i) {
+            nodes.addRelationship("C" + i, "C" + (i / 2), RelationshipType.INHERITANCE);
+            nodes.addRelationship("C" + i, "C" + ((i * 7) % 500), RelationshipType.CONTAINMENT);
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assert.assertTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        ForceLayout layout = new ForceLayout(nodes, 2, 0L);
+        try {
+            CompactGraph graph = nodes.getCompactGraph();
+            for (int t = 0; t < WARMUP_TICKS; ++t) {
+                layout.tick(graph);
+            }
+
+            // the ticks run on the pool's threads as well as this one
+            long[] ids = ManagementFactory.getThreadMXBean().getAllThreadIds();
+            long before = sum(threads.getThreadAllocatedBytes(ids));
+            for (int t = 0; t < MEASURED_TICKS; ++t) {
+                layout.tick(graph);
+            }
+            long allocated = sum(threads.getThreadAllocatedBytes(ids)) - before;
+
+            Assert.assertTrue("Allocated " + allocated + " bytes in " + MEASURED_TICKS + " ticks", allocated <= (MAX_BYTES_PER_TICK * MEASURED_TICKS));
+        } finally {
+            layout.terminate();
+        }
+    }
+
+    private static long sum(long[] values) {
+        long total = 0;
+        for (long v : values) {
+            if (v > 0) {
+                total += v;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.jogamp.opengl.GL;
+import com.jogamp.opengl.GL2;
+import com.jogamp.opengl.GLAutoDrawable;
+import com.jogamp.opengl.GLCapabilities;
+import com.jogamp.opengl.GLDrawableFactory;
+import com.jogamp.opengl.GLEventListener;
+import com.jogamp.opengl.GLException;
+import com.jogamp.opengl.GLOffscreenAutoDrawable;
+import com.jogamp.opengl.GLProfile;
+import com.jogamp.opengl.fixedfunc.GLMatrixFunc;
+import com.jogamp.opengl.glu.GLU;
+
+/**
+ * renders one frame of point sprites offscreen. Skipped where no GL2 profile is
+ * available; on a machine without a GPU, run it on Mesa's software GL with
+ * LIBGL_ALWAYS_SOFTWARE=1 mvn test
+ */
+public class PointSpriteRendererTest {
+
+    private static final int SIZE = 64;
+    private static final float FIELD_OF_VIEW = 45.0f;
+
+    @Test
+    public void rendersOneFrameOffscreen() {
+        GLProfile profile = gl2Profile();
+        Assume.assumeNotNull(profile);
+
+        GLCapabilities caps = new GLCapabilities(profile);
+        caps.setOnscreen(false);
+        caps.setDepthBits(16);
+        GLOffscreenAutoDrawable drawable = GLDrawableFactory.getFactory(profile).createOffscreenAutoDrawable(null, caps, null, SIZE, SIZE);
+
+        ClassNodes nodes = new ClassNodes(name -> ClassType.APPLICATION_CLASS);
+        nodes.addRelationship("com.example.A", "com.example.B", RelationshipType.INHERITANCE);
+        ViewGraph graph = new PackageView(nodes, false).getViewGraph();
+        LayoutPositions positions = new LayoutPositions();
+        positions.setSize(graph.size());
+
+        FrameListener frame = new FrameListener(graph, positions);
+        drawable.addGLEventListener(frame);
+        try {
+            drawable.display();
+        } finally {
+            drawable.destroy();
+        }
+
+        Assert.assertTrue("point sprite shaders didn't compile or link", frame.initialized);
+        Assert.assertEquals("GL error " + Integer.toHexString(frame.error), GL.GL_NO_ERROR, frame.error);
+        Assert.assertTrue("nothing was drawn at the center", frame.centerLit);
+    }
+
+    private static GLProfile gl2Profile() {
+        try {
+            return GLProfile.isAvailable(GLProfile.GL2) ? GLProfile.get(GLProfile.GL2) : null;
+        } catch (GLException | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static class FrameListener implements GLEventListener {
+
+        private ViewGraph graph;
+        private LayoutPositions positions;
+        private PointSpriteRenderer renderer = new PointSpriteRenderer(ForceLayout.RADIUS);
+        boolean initialized;
+        int error = GL.GL_NO_ERROR;
+        boolean centerLit;
+
+        FrameListener(ViewGraph viewGraph, LayoutPositions layoutPositions) {
+            graph = viewGraph;
+            positions = layoutPositions;
+        }
+
+        @Override
+        public void init(GLAutoDrawable drawable) {
+            GL2 gl = drawable.getGL().getGL2();
+            gl.glEnable(GL.GL_DEPTH_TEST);
+            initialized = renderer.init(gl);
+        }
+
+        @Override
+        public void display(GLAutoDrawable drawable) {
+            if (!initialized) {
+                return;
+            }
+
+            GL2 gl = drawable.getGL().getGL2();
+            gl.glClearColor(0.0f, 0.0f, 0.0f, 1.0f);
+            gl.glClear(GL.GL_COLOR_BUFFER_BIT | GL.GL_DEPTH_BUFFER_BIT);
+
+            float[] eye = { 0.0f, 0.0f, 100.0f };
+            float[] target = { 0.0f, 0.0f, 0.0f };
+            ViewFrustum view = new ViewFrustum();
+            view.set(eye, target, FIELD_OF_VIEW, 1.0f, 1.0f, 1000.0f, SIZE);
+
+            GLU glu = new GLU();
+            gl.glMatrixMode(GLMatrixFunc.GL_PROJECTION);
+            gl.glLoadIdentity();
+            glu.gluPerspective(FIELD_OF_VIEW, 1.0f, 1.0f, 1000.0f);
+            glu.gluLookAt(eye[0], eye[1], eye[2], target[0], target[1], target[2], 0, 1, 0);
+            gl.glMatrixMode(GLMatrixFunc.GL_MODELVIEW);
+            gl.glLoadIdentity();
+
+            SpatialGrid grid = new SpatialGrid(ForceLayout.RADIUS * 2.0f);
+            grid.build(positions.size(), positions.getX(), positions.getY(), positions.getZ());
+            renderer.draw(gl, graph, positions, grid, graph.size(), view);
+            gl.glFinish();
+
+            ByteBuffer pixel = ByteBuffer.allocateDirect(4);
+            gl.glReadPixels(SIZE / 2, SIZE / 2, 1, 1, GL.GL_RGBA, GL.GL_UNSIGNED_BYTE, pixel);
+            centerLit = ((pixel.get(0) | pixel.get(1) | pixel.get(2)) != 0);
+            error = gl.glGetError();
+        }
+
+        @Override
+        public void reshape(GLAutoDrawable drawable, int x, int y, int width, int height) {
+            // fixed size
+        }
+
+        @Override
+        public void dispose(GLAutoDrawable drawable) {
+            if (initialized) {
+                renderer.dispose(drawable.getGL().getGL2());
+            }
+        }
+    }
+}
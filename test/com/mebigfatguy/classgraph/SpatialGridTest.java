@@ -0,0 +1,148 @@
+/*
+ * ClassGraph - a dependency graph display
+ * Copyright 2013-2019 MeBigFatGuy.com
+ * Copyright 2013-2019 Dave Brosius
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.mebigfatguy.classgraph;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SpatialGridTest {
+
+    private static final float RADIUS = ForceLayout.RADIUS;
+
+    @Test
+    public void rayHitsNearestNodeOnItsLine() {
+        // three nodes on the z axis, one behind the eye, and some to the side
+        float[] x = { 0.0f, 0.0f, 0.0f, 0.0f, 40.0f, -40.0f, 3.0f };
+        float[] y = { 0.0f, 0.0f, 0.0f, 0.0f, 0.0f, 40.0f, 0.0f };
+        float[] z = { -90.0f, -10.0f, -50.0f, 200.0f, -10.0f, -60.0f, -30.0f };
+        SpatialGrid grid = new SpatialGrid(RADIUS * 2.0f);
+        grid.build(x.length, x, y, z);
+
+        Assert.assertEquals(1, grid.raycast(0.0f, 0.0f, 100.0f, 0.0f, 0.0f, -1.0f, RADIUS));
+        Assert.assertEquals(4, grid.raycast(40.0f, 0.0f, 100.0f, 0.0f, 0.0f, -1.0f, RADIUS));
+        // looking back up the axis from below finds the lowest node first
+        Assert.assertEquals(0, grid.raycast(0.0f, 0.0f, -150.0f, 0.0f, 0.0f, 1.0f, RADIUS));
+    }
+
+    @Test
+    public void rayMissesNodesOffItsLine() {
+        float[] x = { 0.0f, 20.0f, -20.0f };
+        float[] y = { 0.0f, 0.0f, 30.0f };
+        float[] z = { 0.0f, -40.0f, 10.0f };
+        SpatialGrid grid = new SpatialGrid(RADIUS * 2.0f);
+        grid.build(x.length, x, y, z);
+
+        Assert.assertEquals(-1, grid.raycast(60.0f, 60.0f, 100.0f, 0.0f, 0.0f, -1.0f, RADIUS));
+        // pointing away from every node
+        Assert.assertEquals(-1, grid.raycast(0.0f, 0.0f, 100.0f, 0.0f, 0.0f, 1.0f, RADIUS));
+        Assert.assertEquals(-1, new SpatialGrid(RADIUS).raycast(0.0f, 0.0f, 100.0f, 0.0f, 0.0f, -1.0f, RADIUS));
+    }
+
+    @Test
+    public void viewVisitsEveryVisiblePointOnce() {
+        Random random = new Random(5);
+        int count = 3000;
+        float[] x = new float[count];
+        float[] y = new float[count];
+        float[] z = new float[count];
+        for (int i = 0; i < count; ++i) {
+            x[i] = (random.nextFloat() - 0.5f) * 800.0f;
+            y[i] = (random.nextFloat() - 0.5f) * 800.0f;
+            z[i] = (random.nextFloat() - 0.5f) * 800.0f;
+        }
+        SpatialGrid grid = new SpatialGrid(RADIUS * 2.0f);
+        grid.build(count, x, y, z);
+
+        ViewFrustum view = new ViewFrustum();
+        view.set(new float[] { 0.0f, 0.0f, 300.0f }, new float[] { 100.0f, 0.0f, 0.0f }, 45.0f, 1.5f, 1.0f, 1000.0f, 600);
+        int[] visits = new int[count];
+        grid.forEachInView(view, RADIUS, point -> ++visits[point]);
+
+        int visible = 0;
+        int visited = 0;
+        for (int i = 0; i < count; ++i) {
+            Assert.assertTrue("point " + i + " visited " + visits[i] + " times", visits[i] <= 1);
+            visited += visits[i];
+            if (view.isVisible(x[i], y[i], z[i], RADIUS)) {
+                Assert.assertEquals("visible point " + i, 1, visits[i]);
+                ++visible;
+            }
+        }
+        Assert.assertTrue(visible > 0);
+        // the cells off screen are skipped
+        Assert.assertTrue(visited < (count / 2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void buildRejectsInfiniteCoordinates() {
+        float[] x = { 0.0f, Float.POSITIVE_INFINITY };
+        float[] y = { 0.0f, 0.0f };
+        float[] z = { 0.0f, 0.0f };
+        new SpatialGrid(RADIUS).build(x.length, x, y, z);
+    }
+
+    @Test
+    public void rayFindsWhatEveryNodeTestFinds() {
+        Random random = new Random(11);
+        int count = 2000;
+        float[] x = new float[count];
+        float[] y = new float[count];
+        float[] z = new float[count];
+        for (int i = 0; i < count; ++i) {
+            x[i] = (random.nextFloat() - 0.5f) * 400.0f;
+            y[i] = (random.nextFloat() - 0.5f) * 400.0f;
+            z[i] = (random.nextFloat() - 0.5f) * 400.0f;
+        }
+        SpatialGrid grid = new SpatialGrid(RADIUS * 2.0f);
+        grid.build(count, x, y, z);
+
+        for (int r = 0; r < 500; ++r) {
+            float ox = (random.nextFloat() - 0.5f) * 600.0f;
+            float oy = (random.nextFloat() - 0.5f) * 600.0f;
+            float oz = (random.nextFloat() - 0.5f) * 600.0f;
+            float dx = random.nextFloat() - 0.5f;
+            float dy = random.nextFloat() - 0.5f;
+            float dz = random.nextFloat() - 0.5f;
+            float length = VectorMath.length(dx, dy, dz);
+            dx /= length;
+            dy /= length;
+            dz /= length;
+
+            int expected = -1;
+            float nearest = Float.POSITIVE_INFINITY;
+            for (int i = 0; i < count; ++i) {
+                float px = x[i] - ox;
+                float py = y[i] - oy;
+                float pz = z[i] - oz;
+                float along = (px * dx) + (py * dy) + (pz * dz);
+                float offSq = ((px * px) + (py * py) + (pz * pz)) - (along * along);
+                if ((along > 0.0f) && (offSq <= (RADIUS * RADIUS))) {
+                    float hit = along - (float) Math.sqrt((RADIUS * RADIUS) - offSq);
+                    if (hit < nearest) {
+                        nearest = hit;
+                        expected = i;
+                    }
+                }
+            }
+
+            Assert.assertEquals("ray " + r, expected, grid.raycast(ox, oy, oz, dx, dy, dz, RADIUS));
+        }
+    }
+}